@@ -0,0 +1,314 @@
+package me.casper.wexo;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives a running instance of the application with a mix of index, entry and filtered pages, and reports the throughput and latency of each.
+ * With {@code --refresh}, a refresh of the catalogue is kept running for the whole test, to measure serving while the catalogue is swapped out.
+ * <p>
+ * Run it with {@code mvn -P benchmark test-compile exec:java -Dexec.mainClass=me.casper.wexo.LoadTest -Dexec.args="--threads 16 --duration 60 --refresh"}.
+ * <ul>
+ *     <li>{@code --url} The address of the application. (http://localhost:8080)</li>
+ *     <li>{@code --threads} The amount of requests in flight at once. (16)</li>
+ *     <li>{@code --duration} The time to measure, in seconds. (30)</li>
+ *     <li>{@code --warmup} The time to send requests before measuring, in seconds. (5)</li>
+ *     <li>{@code --management} The address of the management port of the application. (http://localhost:8081)</li>
+ *     <li>{@code --refresh} Keeps a refresh running through /actuator/refresh.</li>
+ * </ul>
+ */
+public final class LoadTest {
+	
+	private static final String[] PAGES = {"index", "entry", "filtered"};
+	
+	// The share of requests for each page, entries are looked at the most.
+	private static final double[] MIX = {0.2, 0.5, 0.3};
+	
+	private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+	
+	private final String url;
+	private final String managementUrl;
+	private final List<String> ids = new ArrayList<>();
+	private final List<String> genres = new ArrayList<>();
+	
+	private LoadTest(String url, String managementUrl) {
+		
+		this.url = url;
+		this.managementUrl = managementUrl;
+	}
+	
+	public static void main(String[] args) throws Exception {
+		
+		String url = "http://localhost:8080";
+		String managementUrl = "http://localhost:8081";
+		int threads = 16;
+		int duration = 30;
+		int warmup = 5;
+		boolean refresh = false;
+		
+		for (int i = 0; i < args.length; i++) {
+			
+			switch (args[i]) {
+				
+				case "--url" -> url = args[++i];
+				case "--management" -> managementUrl = args[++i];
+				case "--threads" -> threads = Integer.parseInt(args[++i]);
+				case "--duration" -> duration = Integer.parseInt(args[++i]);
+				case "--warmup" -> warmup = Integer.parseInt(args[++i]);
+				case "--refresh" -> refresh = true;
+				default -> throw new IllegalArgumentException("Unknown option " + args[i] + "!");
+			}
+		}
+		
+		LoadTest test = new LoadTest(url, managementUrl);
+		
+		test.discover();
+		
+		System.out.printf("Found %d entries and %d genres, warming up for %d s...%n", test.ids.size(), test.genres.size(), warmup);
+		
+		test.run(threads, TimeUnit.SECONDS.toNanos(warmup), false);
+		
+		System.out.printf("Measuring %d threads for %d s%s...%n", threads, duration, refresh ? " while refreshing" : "");
+		
+		Recorder[] results = test.run(threads, TimeUnit.SECONDS.toNanos(duration), refresh);
+		
+		System.out.printf("%-10s %10s %10s %10s %10s %10s %10s %8s%n", "page", "requests", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms", "errors");
+		
+		Recorder total = new Recorder();
+		
+		for (int i = 0; i < PAGES.length; i++) {
+			
+			results[i].print(PAGES[i], duration);
+			total.addAll(results[i]);
+		}
+		
+		total.print("total", duration);
+		
+		System.exit(0);
+	}
+	
+	/**
+	 * Collects the entry IDs and genres to request from the JSON API.
+	 */
+	private void discover() throws IOException, InterruptedException {
+		
+		LinkedHashSet<String> found = new LinkedHashSet<>();
+		
+		String cursor = null;
+		
+		do {
+			
+			HttpRequest request = HttpRequest.newBuilder(URI.create(url + "/api/entries?limit=1000" + (cursor == null ? "" : "&cursor=" + encode(cursor)))).build();
+			
+			String page = client.send(request, HttpResponse.BodyHandlers.ofString()).body();
+			JsonObject json = JsonParser.parseString(page).getAsJsonObject();
+			
+			for (JsonElement element : json.getAsJsonArray("entries")) {
+				
+				JsonObject entry = element.getAsJsonObject();
+				
+				ids.add(entry.get("id").getAsString());
+				
+				entry.getAsJsonArray("genres").forEach(genre -> found.add(genre.getAsString()));
+			}
+			
+			cursor = json.get("next").isJsonNull() ? null : json.get("next").getAsString();
+			
+		} while (cursor != null && ids.size() < 100_000);
+		
+		genres.addAll(found);
+		
+		if (ids.isEmpty()) throw new IllegalStateException("The application doesn't have a catalogue yet!");
+	}
+	
+	/**
+	 * Sends requests from a number of threads until the time is up.
+	 *
+	 * @return The latencies of each page.
+	 */
+	private Recorder[] run(int threads, long duration, boolean refresh) throws Exception {
+		
+		ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+		
+		final long deadline = System.nanoTime() + duration;
+		
+		ArrayList<Future<Recorder[]>> workers = new ArrayList<>();
+		
+		for (int i = 0; i < threads; i++)
+			workers.add(executor.submit(() -> work(deadline)));
+		
+		if (refresh) executor.submit(() -> refresh(deadline));
+		
+		Recorder[] results = {new Recorder(), new Recorder(), new Recorder()};
+		
+		for (Future<Recorder[]> worker : workers) {
+			
+			Recorder[] recorders = worker.get();
+			
+			for (int i = 0; i < results.length; i++)
+				results[i].addAll(recorders[i]);
+		}
+		
+		executor.shutdownNow();
+		
+		return results;
+	}
+	
+	private Recorder[] work(long deadline) {
+		
+		Recorder[] recorders = {new Recorder(), new Recorder(), new Recorder()};
+		
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		
+		while (System.nanoTime() < deadline) {
+			
+			final double roll = random.nextDouble();
+			final int page = roll < MIX[0] ? 0 : roll < MIX[0] + MIX[1] ? 1 : 2;
+			
+			String path = switch (page) {
+				
+				case 0 -> "/";
+				case 1 -> "/entry/" + ids.get(random.nextInt(ids.size()));
+				default -> {
+					
+					final int start = 1 + random.nextInt(Math.max(1, ids.size() - 100));
+					
+					yield "/?start=" + start + "&end=" + (start + 100) + "&genre=" + encode(genres.get(random.nextInt(genres.size())))
+							+ "&type=" + (random.nextBoolean() ? "movie" : "series");
+				}
+			};
+			
+			final long startTime = System.nanoTime();
+			
+			try {
+				
+				HttpResponse<byte[]> response = send(path);
+				
+				recorders[page].add(System.nanoTime() - startTime, response.statusCode() != 200);
+				
+			} catch (IOException e) {
+				
+				recorders[page].add(System.nanoTime() - startTime, true);
+				
+			} catch (InterruptedException e) {
+				
+				Thread.currentThread().interrupt();
+				
+				break;
+			}
+		}
+		
+		return recorders;
+	}
+	
+	/**
+	 * Starts a refresh whenever the last one has finished.
+	 */
+	private Void refresh(long deadline) throws InterruptedException {
+		
+		while (System.nanoTime() < deadline) {
+			
+			try {
+				
+				HttpRequest request = HttpRequest.newBuilder(URI.create(managementUrl + "/actuator/refresh")).POST(HttpRequest.BodyPublishers.noBody()).build();
+				
+				String response = client.send(request, HttpResponse.BodyHandlers.ofString()).body();
+				
+				if (response.contains("true")) System.out.println("Started a refresh.");
+				
+			} catch (IOException e) {
+				
+				System.out.println("Failed to start a refresh: " + e.getMessage());
+			}
+			
+			Thread.sleep(1_000);
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Requests a page the way a browser would, but without decompressing it, so only the application is measured.
+	 */
+	private HttpResponse<byte[]> send(String path) throws IOException, InterruptedException {
+		
+		HttpRequest request =
+				HttpRequest.newBuilder(URI.create(url + path))
+						.header("Accept-Encoding", "gzip")
+						.timeout(Duration.ofSeconds(30))
+						.build();
+		
+		return client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+	}
+	
+	private static String encode(String value) {
+		
+		return URLEncoder.encode(value, StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * A growable list of latencies, and the amount of them that failed.
+	 */
+	private static final class Recorder {
+		
+		private long[] latencies = new long[1024];
+		private int size = 0;
+		private int errors = 0;
+		
+		void add(long latency, boolean error) {
+			
+			if (size == latencies.length)
+				latencies = Arrays.copyOf(latencies, size * 2);
+			
+			latencies[size++] = latency;
+			
+			if (error) errors++;
+		}
+		
+		void addAll(Recorder other) {
+			
+			for (int i = 0; i < other.size; i++)
+				add(other.latencies[i], false);
+			
+			errors += other.errors;
+		}
+		
+		void print(String page, int duration) {
+			
+			long[] sorted = Arrays.copyOf(latencies, size);
+			
+			Arrays.sort(sorted);
+			
+			System.out.printf("%-10s %10d %10.1f %10.2f %10.2f %10.2f %10.2f %8d%n", page, size, size / (double) duration,
+					percentile(sorted, 0.5), percentile(sorted, 0.99), percentile(sorted, 0.999), percentile(sorted, 1), errors);
+		}
+		
+		private static double percentile(long[] sorted, double percentile) {
+			
+			if (sorted.length == 0) return 0;
+			
+			final int index = (int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1);
+			
+			return sorted[Math.max(0, index)] / 1_000_000.0;
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package me.casper.wexo.api;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures writing the disk cache, and loading it back from the binary snapshot and from JSON.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CacheBenchmark {
+	
+	@Param({"10000", "100000"})
+	public int size;
+	
+	private REST writer;
+	
+	private String snapshotCache;
+	private String jsonCache;
+	
+	@Setup
+	public void setup() throws IOException {
+		
+		Path directory = Files.createTempDirectory("wexo-benchmark");
+		
+		snapshotCache = directory.resolve("snapshot/cache.json").toString();
+		jsonCache = directory.resolve("json/cache.json").toString();
+		
+		writer = new REST(snapshotCache, 1);
+		writer.load();
+		
+		for (Entry entry : SyntheticCatalogue.entries(size, 42))
+			writer.stage(entry);
+		
+		writer.write();
+		
+		// The same cache, but without a snapshot next to it, so only the JSON can be loaded.
+		Files.createDirectories(Path.of(jsonCache).getParent());
+		Files.copy(Path.of(snapshotCache), Path.of(jsonCache));
+	}
+	
+	@Benchmark
+	public void write() {
+		
+		writer.write();
+	}
+	
+	@Benchmark
+	public Catalogue loadSnapshot() throws IOException {
+		
+		REST rest = new REST(snapshotCache, 1);
+		rest.load();
+		
+		return rest.getCatalogue();
+	}
+	
+	@Benchmark
+	public Catalogue loadJson() throws IOException {
+		
+		REST rest = new REST(jsonCache, 1);
+		rest.load();
+		
+		return rest.getCatalogue();
+	}
+}
@@ -0,0 +1,131 @@
+package me.casper.wexo.api;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the request hot paths: entry lookups, filtered and sorted pages, the genre grid of the index page, search and autocomplete,
+ * as well as building the catalogue and its indexes on a refresh.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CatalogueBenchmark {
+	
+	@Param({"10000", "100000"})
+	public int size;
+	
+	private List<Entry> entries;
+	private Catalogue catalogue;
+	
+	@Setup
+	public void setup() {
+		
+		entries = SyntheticCatalogue.entries(size, 42);
+		catalogue = new Catalogue(entries, 0);
+	}
+	
+	@Benchmark
+	public Entry getEntry() {
+		
+		return catalogue.getEntry("synthetic-" + ThreadLocalRandom.current().nextInt(size));
+	}
+	
+	@Benchmark
+	public ArrayList<Entry> firstPage(Filter filter) {
+		
+		return catalogue.filter(1, 100, filter.genre, filter.type);
+	}
+	
+	@Benchmark
+	public ArrayList<Entry> wholeCatalogue(Filter filter) {
+		
+		return catalogue.filter(1, size, filter.genre, filter.type);
+	}
+	
+	// The genre grid of the index page, see WebController#index.
+	@Benchmark
+	public void genreAggregation(Filter filter, Blackhole blackhole) {
+		
+		blackhole.consume(catalogue.countGenres(1, 100, filter.type));
+		blackhole.consume(catalogue.getGenreArt());
+	}
+	
+	// A sorted page of two genres from one decade, walked the way the index page renders it.
+	@Benchmark
+	public void query(Query query, Blackhole blackhole) {
+		
+		for (Entry entry : catalogue.query(query.query))
+			blackhole.consume(entry);
+	}
+	
+	@Benchmark
+	public ArrayList<Entry> search(Search search) {
+		
+		return catalogue.search(search.query, 100);
+	}
+	
+	// Doesn't allocate, run it with -Djmh.args="CatalogueBenchmark.autocomplete -prof gc" to check that gc.alloc.rate.norm stays at 0 B/op.
+	@Benchmark
+	public int autocomplete(Search search) {
+		
+		return catalogue.getAutocomplete().complete(search.query, search.results);
+	}
+	
+	@Benchmark
+	public Catalogue build() {
+		
+		return new Catalogue(entries, 0);
+	}
+	
+	@State(Scope.Benchmark)
+	public static class Filter {
+		
+		// The genre and type to filter by, separated by a slash.
+		@Param({"all/all", "Drama/all", "all/movie", "Drama/movie"})
+		public String filter;
+		
+		private String genre;
+		private String type;
+		
+		@Setup
+		public void setup() {
+			
+			genre = filter.split("/")[0];
+			type = filter.split("/")[1];
+		}
+	}
+	
+	@State(Scope.Benchmark)
+	public static class Query {
+		
+		@Param({"year", "-year", "title"})
+		public String sort;
+		
+		private CatalogueQuery query;
+		
+		@Setup
+		public void setup() {
+			
+			query = new CatalogueQuery(0, Integer.MAX_VALUE, List.of("Drama", "Gyser"), false, "all", 1990, 1999, CatalogueQuery.Sort.parse(sort));
+		}
+	}
+	
+	@State(Scope.Benchmark)
+	public static class Search {
+		
+		// A common word, a two word query, a short prefix and a name.
+		@Param({"hemmelighed", "den store", "s", "skuespiller 12"})
+		public String query;
+		
+		private final int[] results = new int[10];
+	}
+}
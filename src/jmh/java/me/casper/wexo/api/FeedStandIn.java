@@ -0,0 +1,275 @@
+package me.casper.wexo.api;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A local stand-in for the feed, so refreshes can be tested and measured without the real feed.
+ * It answers range requests the way the feed does, from a synthetic catalogue or from a cache written by the application,
+ * with a configurable latency, share of failed requests and share of entries that change between requests.
+ * <p>
+ * Run it with {@code mvn -P benchmark test-compile exec:java -Dexec.mainClass=me.casper.wexo.api.FeedStandIn -Dexec.args="--size 10000"},
+ * and point the application at it with {@code --wexo.fetch.base-url=http://localhost:8090/feed?form=json}.
+ * <ul>
+ *     <li>{@code --port} The port to listen on. (8090)</li>
+ *     <li>{@code --size} The amount of synthetic entries. (10000)</li>
+ *     <li>{@code --seed} The seed of the synthetic entries. (42)</li>
+ *     <li>{@code --recorded} A cache written by the application to replay instead of synthetic entries.</li>
+ *     <li>{@code --latency} The time to wait before answering, in milliseconds. (0)</li>
+ *     <li>{@code --jitter} A random extra wait of up to this many milliseconds. (0)</li>
+ *     <li>{@code --errors} The share of requests answered with a 503. (0)</li>
+ *     <li>{@code --churn} The share of entries in a response with a changed description, so every refresh has something to apply. (0)</li>
+ * </ul>
+ */
+public final class FeedStandIn {
+	
+	private static final Pattern RANGE = Pattern.compile("range=(\\d+)-(\\d+)");
+	
+	private final List<Entry> entries;
+	
+	private final int latency;
+	private final int jitter;
+	private final double errors;
+	private final double churn;
+	
+	private final AtomicLong requests = new AtomicLong();
+	private final AtomicLong failures = new AtomicLong();
+	private final AtomicLong notModified = new AtomicLong();
+	
+	public FeedStandIn(List<Entry> entries, int latency, int jitter, double errors, double churn) {
+		
+		this.entries = entries;
+		this.latency = latency;
+		this.jitter = jitter;
+		this.errors = errors;
+		this.churn = churn;
+	}
+	
+	public static void main(String[] args) throws IOException {
+		
+		int port = 8090;
+		int size = 10_000;
+		long seed = 42;
+		String recorded = null;
+		int latency = 0;
+		int jitter = 0;
+		double errors = 0;
+		double churn = 0;
+		
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			
+			switch (args[i]) {
+				
+				case "--port" -> port = Integer.parseInt(args[i + 1]);
+				case "--size" -> size = Integer.parseInt(args[i + 1]);
+				case "--seed" -> seed = Long.parseLong(args[i + 1]);
+				case "--recorded" -> recorded = args[i + 1];
+				case "--latency" -> latency = Integer.parseInt(args[i + 1]);
+				case "--jitter" -> jitter = Integer.parseInt(args[i + 1]);
+				case "--errors" -> errors = Double.parseDouble(args[i + 1]);
+				case "--churn" -> churn = Double.parseDouble(args[i + 1]);
+				default -> throw new IllegalArgumentException("Unknown option " + args[i] + "!");
+			}
+		}
+		
+		List<Entry> entries = recorded == null ? SyntheticCatalogue.entries(size, seed) : load(recorded);
+		
+		FeedStandIn standIn = new FeedStandIn(entries, latency, jitter, errors, churn);
+		
+		HttpServer server = standIn.start(port);
+		
+		System.out.printf("Serving %d entries on http://localhost:%d/feed?form=json%n", entries.size(), server.getAddress().getPort());
+	}
+	
+	/**
+	 * Starts serving the feed.
+	 *
+	 * @param port The port to listen on, or 0 for any free port.
+	 * @return The running server.
+	 */
+	public HttpServer start(int port) throws IOException {
+		
+		HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+		
+		server.createContext("/feed", this::handle);
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.start();
+		
+		return server;
+	}
+	
+	public long getRequests() {
+		
+		return requests.get();
+	}
+	
+	public long getFailures() {
+		
+		return failures.get();
+	}
+	
+	public long getNotModified() {
+		
+		return notModified.get();
+	}
+	
+	private void handle(HttpExchange exchange) throws IOException {
+		
+		try (exchange) {
+			
+			requests.incrementAndGet();
+			
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			
+			final int wait = latency + (jitter > 0 ? random.nextInt(jitter + 1) : 0);
+			
+			if (wait > 0) {
+				
+				try {
+					
+					Thread.sleep(wait);
+					
+				} catch (InterruptedException e) {
+					
+					Thread.currentThread().interrupt();
+				}
+			}
+			
+			if (random.nextDouble() < errors) {
+				
+				failures.incrementAndGet();
+				
+				exchange.sendResponseHeaders(503, -1);
+				
+				return;
+			}
+			
+			String query = exchange.getRequestURI().getQuery();
+			Matcher range = RANGE.matcher(query == null ? "" : query);
+			
+			if (!range.find()) {
+				
+				exchange.sendResponseHeaders(400, -1);
+				
+				return;
+			}
+			
+			// The feed counts from 1, and the end of a range is inclusive.
+			final int from = Math.min(entries.size(), Math.max(0, Integer.parseInt(range.group(1)) - 1));
+			final int to = Math.min(entries.size(), Integer.parseInt(range.group(2)));
+			
+			byte[] body = SyntheticCatalogue.feed(page(Math.min(from, to), to)).getBytes(StandardCharsets.UTF_8);
+			
+			String etag = "\"" + Integer.toHexString(Arrays.hashCode(body)) + "\"";
+			
+			exchange.getResponseHeaders().set("ETag", etag);
+			
+			if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+				
+				notModified.incrementAndGet();
+				
+				exchange.sendResponseHeaders(304, -1);
+				
+				return;
+			}
+			
+			exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+			
+			String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+			
+			if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+				
+				body = compress(body);
+				
+				exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+			}
+			
+			exchange.sendResponseHeaders(200, body.length);
+			
+			try (OutputStream output = exchange.getResponseBody()) {
+				
+				output.write(body);
+			}
+		}
+	}
+	
+	/**
+	 * Copies a range of the entries, changing the description of a share of them if there is any churn.
+	 */
+	private List<Entry> page(int from, int to) {
+		
+		List<Entry> page = entries.subList(from, to);
+		
+		if (churn <= 0) return page;
+		
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		
+		ArrayList<Entry> changed = new ArrayList<>(page.size());
+		
+		for (Entry entry : page) {
+			
+			if (random.nextDouble() >= churn) {
+				
+				changed.add(entry);
+				
+				continue;
+			}
+			
+			changed.add(new Entry(entry.getId(), entry.getTitle(), entry.getDescription() + " (" + random.nextInt(1000) + ")", entry.getProgramType(),
+					entry.getReleaseYear(), entry.getCovers(), entry.getBackdrops(), entry.getGenres(), entry.getActors(), entry.getDirectors(), entry.getTrailers()));
+		}
+		
+		return changed;
+	}
+	
+	private static byte[] compress(byte[] body) throws IOException {
+		
+		ByteArrayOutputStream output = new ByteArrayOutputStream(body.length / 4);
+		
+		try (GZIPOutputStream gzip = new GZIPOutputStream(output)) {
+			
+			gzip.write(body);
+		}
+		
+		return output.toByteArray();
+	}
+	
+	/**
+	 * Loads the entries of a cache written by the application.
+	 */
+	private static List<Entry> load(String cachePath) throws IOException {
+		
+		if (!Files.exists(Path.of(cachePath)))
+			throw new IOException("There is no cache at " + cachePath + "!");
+		
+		REST rest = new REST(cachePath, 1);
+		
+		try {
+			
+			rest.load();
+			
+			return rest.getActiveCache();
+			
+		} finally {
+			
+			rest.shutdown();
+		}
+	}
+}
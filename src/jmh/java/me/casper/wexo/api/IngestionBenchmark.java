@@ -0,0 +1,87 @@
+package me.casper.wexo.api;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures turning a single range response of the feed into entries, and turning cached JSON back into entries.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IngestionBenchmark {
+	
+	private REST rest;
+	
+	private String feed;
+	private List<JsonObject> feedEntries;
+	private List<JsonObject> cachedEntries;
+	
+	@Setup
+	public void setup() throws IOException {
+		
+		Path directory = Files.createTempDirectory("wexo-benchmark");
+		
+		rest = new REST(directory.resolve("cache.json").toString(), 1);
+		
+		// A range request never returns more than this many entries.
+		List<Entry> entries = SyntheticCatalogue.entries(REST.MAX_ITEMS_PER_REQUEST, 42);
+		
+		feed = SyntheticCatalogue.feed(entries);
+		feedEntries = objects(JsonParser.parseString(feed).getAsJsonObject().getAsJsonArray("entries"));
+		
+		for (Entry entry : entries)
+			rest.stage(entry);
+		
+		rest.write();
+		
+		String cache = Files.readString(directory.resolve("cache.json"));
+		cachedEntries = objects(JsonParser.parseString(cache).getAsJsonObject().getAsJsonArray("entries"));
+	}
+	
+	@Benchmark
+	public List<Entry> parseFeedRange() throws IOException {
+		
+		return rest.parseEntries(new StringReader(feed));
+	}
+	
+	@Benchmark
+	public void defineEntry(Blackhole blackhole) {
+		
+		for (JsonObject entry : feedEntries)
+			blackhole.consume(rest.defineEntry(entry));
+	}
+	
+	@Benchmark
+	public void defineCachedEntry(Blackhole blackhole) {
+		
+		for (JsonObject entry : cachedEntries)
+			blackhole.consume(rest.defineCachedEntry(entry));
+	}
+	
+	private static List<JsonObject> objects(JsonArray array) {
+		
+		ArrayList<JsonObject> objects = new ArrayList<>(array.size());
+		
+		for (int i = 0; i < array.size(); i++)
+			objects.add(array.get(i).getAsJsonObject());
+		
+		return objects;
+	}
+}
@@ -0,0 +1,189 @@
+package me.casper.wexo.api;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates catalogues that look like the real feed, from a few thousand entries up to millions.
+ * The output only depends on the size and the seed, so runs can be compared with each other.
+ */
+public final class SyntheticCatalogue {
+	
+	public static final String[] GENRES = {
+			"Action", "Animation", "Biografi", "Dokumentar", "Drama", "Eventyr", "Familie", "Fantasy", "Gyser", "Historie",
+			"Komedie", "Krig", "Krimi", "Musik", "Romantik", "Sci-fi", "Sport", "Thriller", "Western", "Reality"
+	};
+	
+	public static final String[] TYPES = {"movie", "series"};
+	
+	private static final String[] WORDS = {
+			"Den", "store", "lille", "nat", "dag", "hjem", "søster", "bror", "kongen", "ø", "skov", "havet", "rejse", "hemmelighed",
+			"sommer", "vinter", "København", "Århus", "drøm", "kærlighed", "sidste", "første", "mørke", "lys", "jagt", "flugt"
+	};
+	
+	private SyntheticCatalogue() {
+	}
+	
+	/**
+	 * Generates entries the way they end up after ingestion.
+	 *
+	 * @param size The amount of entries to generate.
+	 * @param seed The seed of the generator.
+	 * @return The entries.
+	 */
+	public static List<Entry> entries(int size, long seed) {
+		
+		Random random = new Random(seed);
+		
+		// The amount of people grows with the catalogue, so names repeat about as often as they do in the real feed.
+		final int people = Math.max(100, size / 2);
+		
+		ArrayList<Entry> entries = new ArrayList<>(size);
+		
+		for (int i = 0; i < size; i++) {
+			
+			String id = "synthetic-" + i;
+			
+			ImageSet covers = ImageSet.builder()
+					.add(image(id, "po", 400, 600), 400, 600)
+					.add(image(id, "po", 800, 1200), 800, 1200)
+					.build();
+			
+			ImageSet backdrops = ImageSet.builder()
+					.add(image(id, "bd", 1280, 720), 1280, 720)
+					.add(image(id, "bd", 1920, 1080), 1920, 1080)
+					.add(image(id, "bd", 2048, 1536), 2048, 1536)
+					.build();
+			
+			ArrayList<String> genres = new ArrayList<>();
+			
+			for (int j = 1 + random.nextInt(3); j > 0; j--) {
+				
+				String genre = GENRES[random.nextInt(GENRES.length)];
+				
+				if (!genres.contains(genre)) genres.add(genre);
+			}
+			
+			ArrayList<String> actors = new ArrayList<>();
+			
+			for (int j = 2 + random.nextInt(6); j > 0; j--)
+				actors.add("Skuespiller " + random.nextInt(people));
+			
+			List<String> directors = List.of("Instruktør " + random.nextInt(people / 10));
+			List<String> trailers = List.of("https://trailers.example.com/" + id + ".mp4");
+			
+			entries.add(new Entry(id, sentence(random, 1 + random.nextInt(4)), sentence(random, 20 + random.nextInt(40)),
+					TYPES[random.nextInt(TYPES.length)], 1950 + random.nextInt(74), covers, backdrops, genres, actors, directors, trailers));
+		}
+		
+		return entries;
+	}
+	
+	/**
+	 * Writes entries in the format of the feed, as one page of a range request.
+	 *
+	 * @param entries The entries to write.
+	 * @return The JSON of the page.
+	 */
+	public static String feed(List<Entry> entries) {
+		
+		StringWriter output = new StringWriter();
+		
+		try (JsonWriter writer = new JsonWriter(output)) {
+			
+			writer.beginObject();
+			writer.name("entryCount").value(entries.size());
+			writer.name("entries").beginArray();
+			
+			for (Entry entry : entries) {
+				
+				writer.beginObject();
+				
+				writer.name("guid").value(entry.getId());
+				writer.name("title").value(entry.getTitle());
+				writer.name("description").value(entry.getDescription());
+				writer.name("plprogram$programType").value(entry.getProgramType());
+				writer.name("plprogram$year").value(entry.getReleaseYear());
+				
+				writer.name("plprogram$thumbnails").beginObject();
+				
+				writeThumbnails(writer, entry.getCovers());
+				writeThumbnails(writer, entry.getBackdrops());
+				
+				writer.endObject();
+				
+				writer.name("plprogram$tags").beginArray();
+				
+				for (String genre : entry.getGenres())
+					writer.beginObject().name("plprogram$scheme").value("genre").name("plprogram$title").value(genre).endObject();
+				
+				writer.endArray();
+				
+				writer.name("plprogram$credits").beginArray();
+				
+				for (String actor : entry.getActors())
+					writer.beginObject().name("plprogram$creditType").value("actor").name("plprogram$personName").value(actor).endObject();
+				
+				for (String director : entry.getDirectors())
+					writer.beginObject().name("plprogram$creditType").value("director").name("plprogram$personName").value(director).endObject();
+				
+				writer.endArray();
+				
+				writer.name("plprogramavailability$media").beginArray();
+				
+				for (String trailer : entry.getTrailers())
+					writer.beginObject().name("plmedia$publicUrl").value(trailer).endObject();
+				
+				writer.endArray();
+				
+				writer.endObject();
+			}
+			
+			writer.endArray();
+			writer.endObject();
+			
+		} catch (IOException e) {
+			
+			throw new UncheckedIOException(e);
+		}
+		
+		return output.toString();
+	}
+	
+	private static void writeThumbnails(JsonWriter writer, ImageSet images) throws IOException {
+		
+		for (int i = 0; i < images.size(); i++) {
+			
+			writer.name(images.getWidth(i) + "x" + images.getHeight(i) + "-" + i).beginObject();
+			writer.name("plprogram$url").value(images.getUrl(i));
+			writer.name("plprogram$width").value(images.getWidth(i));
+			writer.name("plprogram$height").value(images.getHeight(i));
+			writer.endObject();
+		}
+	}
+	
+	private static String image(String id, String kind, int width, int height) {
+		
+		return "https://images.example.com/" + id + "/" + kind + "-" + width + "x" + height + ".jpg";
+	}
+	
+	private static String sentence(Random random, int words) {
+		
+		StringBuilder sentence = new StringBuilder();
+		
+		for (int i = 0; i < words; i++) {
+			
+			if (i > 0) sentence.append(' ');
+			
+			sentence.append(WORDS[random.nextInt(WORDS.length)]);
+		}
+		
+		return sentence.toString();
+	}
+}
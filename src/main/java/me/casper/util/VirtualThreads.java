@@ -0,0 +1,96 @@
+package me.casper.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates virtual threads when the JVM has them (Java 21 and up), while the project itself still targets Java 17.
+ * Everything is looked up through reflection once, and {@link #isSupported()} tells whether it worked.
+ */
+public final class VirtualThreads {
+	
+	private static final Method OF_VIRTUAL;
+	private static final Method NAME;
+	private static final Method FACTORY;
+	private static final Method NEW_THREAD_PER_TASK_EXECUTOR;
+	
+	static {
+		
+		Method ofVirtual = null;
+		Method name = null;
+		Method factory = null;
+		Method newThreadPerTaskExecutor = null;
+		
+		if (Runtime.version().feature() >= 21) {
+			
+			try {
+				
+				ofVirtual = Thread.class.getMethod("ofVirtual");
+				
+				Class<?> builder = ofVirtual.getReturnType();
+				
+				name = builder.getMethod("name", String.class, long.class);
+				factory = builder.getMethod("factory");
+				newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+				
+			} catch (ReflectiveOperationException e) {
+				
+				ofVirtual = null;
+			}
+		}
+		
+		OF_VIRTUAL = ofVirtual;
+		NAME = name;
+		FACTORY = factory;
+		NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+	}
+	
+	private VirtualThreads() {
+	}
+	
+	public static boolean isSupported() {
+		
+		return OF_VIRTUAL != null;
+	}
+	
+	/**
+	 * Creates a factory of virtual threads, named with a prefix and a counter. (prefix0, prefix1, ...)
+	 *
+	 * @throws UnsupportedOperationException If the JVM doesn't have virtual threads.
+	 */
+	public static ThreadFactory factory(String prefix) {
+		
+		if (!isSupported())
+			throw new UnsupportedOperationException("Virtual threads need Java 21 or newer! (Running " + Runtime.version() + ")");
+		
+		try {
+			
+			return (ThreadFactory) FACTORY.invoke(NAME.invoke(OF_VIRTUAL.invoke(null), prefix, 0L));
+			
+		} catch (ReflectiveOperationException e) {
+			
+			throw new IllegalStateException("Failed to create a virtual thread factory!", e);
+		}
+	}
+	
+	/**
+	 * Creates an executor that runs every task on a new virtual thread.
+	 *
+	 * @throws UnsupportedOperationException If the JVM doesn't have virtual threads.
+	 */
+	public static ExecutorService newPerTaskExecutor(String prefix) {
+		
+		ThreadFactory factory = factory(prefix);
+		
+		try {
+			
+			return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, factory);
+			
+		} catch (ReflectiveOperationException e) {
+			
+			throw new IllegalStateException("Failed to create a virtual thread executor!", e);
+		}
+	}
+}
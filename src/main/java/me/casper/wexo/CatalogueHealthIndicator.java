@@ -0,0 +1,34 @@
+package me.casper.wexo;
+
+import me.casper.wexo.api.Catalogue;
+import me.casper.wexo.api.REST;
+import org.springframework.boot.actuate.health.AbstractHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports whether there is a catalogue to serve, and whether it has every range of the feed yet.
+ */
+@Component("catalogue")
+public class CatalogueHealthIndicator extends AbstractHealthIndicator {
+	
+	@Override
+	protected void doHealthCheck(Health.Builder builder) {
+		
+		REST rest = WEXOApplication.getRestInstance();
+		
+		if (rest == null || rest.getCatalogue().size() == 0) {
+			
+			builder.outOfService().withDetail("state", "empty");
+			
+			return;
+		}
+		
+		Catalogue catalogue = rest.getCatalogue();
+		
+		builder.up()
+				.withDetail("state", rest.isPartial() ? "partial" : "complete")
+				.withDetail("size", catalogue.size())
+				.withDetail("lastUpdated", rest.getLastUpdated());
+	}
+}
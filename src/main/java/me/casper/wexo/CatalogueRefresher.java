@@ -0,0 +1,405 @@
+package me.casper.wexo;
+
+import me.casper.util.Time;
+import me.casper.util.VirtualThreads;
+import me.casper.wexo.api.CatalogueSnapshot;
+import me.casper.wexo.api.FetchEngine;
+import me.casper.wexo.api.REST;
+import me.casper.wexo.api.SnapshotClient;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static me.casper.wexo.WEXOApplication.LOGGER;
+
+/**
+ * Loads the cache in the background on startup, and refreshes the catalogue from the feed (or the leader of the cluster) on a fixed interval.
+ */
+@Component
+@ConditionalOnProperty("wexo.cache-path")
+public class CatalogueRefresher implements SmartLifecycle {
+	
+	private final WexoProperties properties;
+	
+	private ScheduledExecutorService scheduler;
+	private REST rest;
+	private SnapshotClient leader; // Null unless this instance follows a leader.
+	
+	// These are guarded by the lock, so a manual refresh can't run at the same time as a scheduled one.
+	// It is a lock rather than a monitor, as a virtual thread waiting on a monitor pins its carrier thread.
+	private final ReentrantLock lock = new ReentrantLock();
+	
+	private ScheduledFuture<?> next;
+	private boolean refreshing = false;
+	private boolean running = false;
+	private boolean loaded = false; // Whether the cache has been loaded and the first refresh scheduled.
+	
+	private volatile int failures = 0; // The amount of refreshes in a row that have failed.
+	private volatile long lastRefreshed = 0;
+	
+	public CatalogueRefresher(WexoProperties properties) {
+		
+		this.properties = properties;
+	}
+	
+	@Override
+	public void start() {
+		
+		lock.lock();
+		
+		try {
+			
+			initialize();
+			
+		} finally {
+			
+			lock.unlock();
+		}
+	}
+	
+	private void initialize() {
+		
+		WexoProperties.Fetch fetch = properties.getFetch();
+		
+		final boolean virtualThreads = properties.isVirtualThreads() && VirtualThreads.isSupported();
+		
+		ThreadFactory threadFactory = virtualThreads ? VirtualThreads.factory("Update Thread #") : runnable -> {
+			
+			Thread thread = new Thread(runnable);
+			
+			thread.setName("Update Thread");
+			thread.setDaemon(true);
+			
+			return thread;
+		};
+		
+		scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			
+			Thread thread = threadFactory.newThread(runnable);
+			
+			thread.setUncaughtExceptionHandler((t, e) -> LOGGER.error("Uncaught exception in thread {}!", t.getName(), e));
+			
+			return thread;
+		});
+		
+		FetchEngine fetchEngine = new FetchEngine(fetch.getConcurrency(), fetch.getRetries(), fetch.getRetryDelay(), virtualThreads);
+		
+		rest = new REST(properties.getCachePath(), fetchEngine, fetch.getBaseUrl(), fetch.getTotalItems());
+		
+		WEXOApplication.setRestInstance(rest);
+		
+		String leaderUrl = properties.getCluster().getLeaderUrl();
+		
+		if (leaderUrl != null && !leaderUrl.isBlank()) {
+			
+			leader = new SnapshotClient(leaderUrl);
+			
+			LOGGER.info("Following the catalogue of {}.", leaderUrl);
+		}
+		
+		running = true;
+		
+		scheduler.execute(this::load);
+	}
+	
+	@Override
+	public void stop() {
+		
+		lock.lock();
+		
+		try {
+			
+			if (!running) return;
+			
+			running = false;
+			
+			if (next != null) next.cancel(false);
+			
+		} finally {
+			
+			lock.unlock();
+		}
+		
+		// Interrupt a refresh that is still running, it keeps the catalogue it had if it doesn't finish.
+		scheduler.shutdownNow();
+		
+		try {
+			
+			if (!scheduler.awaitTermination(10, TimeUnit.SECONDS))
+				LOGGER.warn("The update thread didn't stop in time!");
+			
+		} catch (InterruptedException e) {
+			
+			Thread.currentThread().interrupt();
+		}
+		
+		rest.shutdown();
+		
+		if (leader != null) leader.shutdown();
+	}
+	
+	@Override
+	public boolean isRunning() {
+		
+		lock.lock();
+		
+		try {
+			
+			return running;
+			
+		} finally {
+			
+			lock.unlock();
+		}
+	}
+	
+	// Start before the web server, and stop after it.
+	@Override
+	public int getPhase() {
+		
+		return 0;
+	}
+	
+	/**
+	 * Starts a refresh right away, instead of waiting for the next one.
+	 *
+	 * @return Whether a refresh was started, which it isn't if one is already running or the cache is still being loaded.
+	 */
+	public boolean refreshNow() {
+		
+		lock.lock();
+		
+		try {
+			
+			if (!running || !loaded || refreshing) return false;
+			
+			if (next != null) next.cancel(false);
+			
+			LOGGER.info("Starting a manual update...");
+			
+			next = scheduler.schedule(this::refresh, 0, TimeUnit.MILLISECONDS);
+			
+			return true;
+			
+		} finally {
+			
+			lock.unlock();
+		}
+	}
+	
+	public int getFailures() {
+		
+		return failures;
+	}
+	
+	public long getLastRefreshed() {
+		
+		return lastRefreshed;
+	}
+	
+	public long getNextRefresh() {
+		
+		lock.lock();
+		
+		try {
+			
+			return next == null || refreshing ? 0 : Math.max(0, next.getDelay(TimeUnit.MILLISECONDS));
+			
+		} finally {
+			
+			lock.unlock();
+		}
+	}
+	
+	private void refresh() {
+		
+		lock.lock();
+		
+		try {
+			
+			if (!running) return;
+			
+			refreshing = true;
+			
+		} finally {
+			
+			lock.unlock();
+		}
+		
+		final long startTime = System.currentTimeMillis();
+		
+		long delay;
+		
+		try {
+			
+			LOGGER.info("Updating cache data...");
+			
+			// Fetch every range of the API concurrently, or the snapshot of the leader, and only apply what changed.
+			REST.Delta delta = leader == null ? rest.fetchAll() : pull();
+			
+			if (delta != null && !delta.isEmpty()) {
+				
+				rest.write();
+				
+				// Swap the refreshed catalogue in for the request threads.
+				rest.publish();
+				
+				LOGGER.info("Cache data updated in {}! ({} inserted, {} updated, {} deleted)", Time.formatTime(System.currentTimeMillis() - startTime), delta.inserted(), delta.updated(), delta.deleted());
+				
+			} else {
+				
+				LOGGER.info("Cache data is unchanged, checked in {}!", Time.formatTime(System.currentTimeMillis() - startTime));
+			}
+			
+			if (delta == null || delta.complete()) {
+				
+				failures = 0;
+				lastRefreshed = System.currentTimeMillis();
+				
+				// Keep the interval between the starts of two refreshes, no matter how long a refresh takes.
+				delay = interval() - (System.currentTimeMillis() - startTime);
+				
+			} else {
+				
+				delay = backoff(++failures);
+				
+				LOGGER.warn("Not every range of the feed could be fetched, retrying in {}...", Time.formatTime(delay));
+			}
+			
+		} catch (Exception e) {
+			
+			delay = backoff(++failures);
+			
+			LOGGER.error("Failed to update cache data, retrying in {}!", Time.formatTime(delay), e);
+		}
+		
+		lock.lock();
+		
+		try {
+			
+			refreshing = false;
+			
+			schedule(Math.max(0, delay));
+			
+		} finally {
+			
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Loads the cache from disk, and schedules the first refresh.
+	 */
+	private void load() {
+		
+		final long startTime = System.currentTimeMillis();
+		
+		try {
+			
+			rest.load();
+			
+			LOGGER.info("Loaded {} entries from the cache in {}.", rest.getCatalogue().size(), Time.formatTime(System.currentTimeMillis() - startTime));
+			
+		} catch (IOException e) {
+			
+			LOGGER.error("Failed to load the cache, starting with an empty catalogue!", e);
+		}
+		
+		// If the cache on disk is still fresh, wait until it is due instead of fetching everything again.
+		final long interval = properties.getRefresh().getInterval().toMillis();
+		final long age = System.currentTimeMillis() - rest.getLastUpdated();
+		
+		lock.lock();
+		
+		try {
+			
+			loaded = true;
+			
+			// A follower checks the leader right away, as that is only a 304 if nothing changed.
+			if (leader == null && !rest.getActiveCache().isEmpty() && age < interval) {
+				
+				LOGGER.info("The cache is up to date, the next update is in {}.", Time.formatTime(interval - age));
+				
+				schedule(interval - age);
+				
+			} else {
+				
+				schedule(0);
+			}
+			
+		} finally {
+			
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Pulls the catalogue of the leader if its version differs from ours.
+	 *
+	 * @return The changes that were applied, or null if we already have the same catalogue as the leader.
+	 */
+	private REST.Delta pull() throws IOException {
+		
+		CatalogueSnapshot snapshot = leader.fetch(rest.getCatalogue().getVersion());
+		
+		if (snapshot == null) return null;
+		
+		REST.Delta delta = rest.replace(snapshot.getEntries(), snapshot.getLastUpdated());
+		
+		// Publish even if no entry changed, as the leader may just have them in a different order.
+		if (delta.isEmpty()) {
+			
+			rest.write();
+			rest.publish();
+		}
+		
+		return delta;
+	}
+	
+	private long interval() {
+		
+		return (leader == null ? properties.getRefresh().getInterval() : properties.getCluster().getPollInterval()).toMillis();
+	}
+	
+	/**
+	 * Works out how long to wait after a number of failed refreshes in a row.
+	 * The backoff doubles with every failure, and is jittered between half and all of that, so instances don't retry in lockstep.
+	 */
+	long backoff(int failures) {
+		
+		WexoProperties.Refresh refresh = properties.getRefresh();
+		
+		final long max = refresh.getMaxBackoff().toMillis();
+		final long backoff = Math.min(max, refresh.getInitialBackoff().toMillis() << Math.min(failures - 1, 30));
+		
+		return backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+	}
+	
+	private void schedule(long delay) {
+		
+		lock.lock();
+		
+		try {
+			
+			if (!running || scheduler.isShutdown()) return;
+			
+			// There is only ever one refresh scheduled, or every refresh after it would run twice.
+			if (next != null) next.cancel(false);
+			
+			next = scheduler.schedule(this::refresh, delay, TimeUnit.MILLISECONDS);
+			
+		} finally {
+			
+			lock.unlock();
+		}
+	}
+}
@@ -0,0 +1,44 @@
+package me.casper.wexo;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Shows the state of the refresher at /actuator/refresh, and starts a refresh right away when it is POSTed to.
+ */
+@Component
+@Endpoint(id = "refresh")
+@ConditionalOnProperty("wexo.cache-path")
+public class RefreshEndpoint {
+	
+	private final CatalogueRefresher refresher;
+	
+	public RefreshEndpoint(CatalogueRefresher refresher) {
+		
+		this.refresher = refresher;
+	}
+	
+	@ReadOperation
+	public Map<String, Object> status() {
+		
+		LinkedHashMap<String, Object> status = new LinkedHashMap<>();
+		
+		status.put("lastRefreshed", refresher.getLastRefreshed());
+		status.put("nextRefreshIn", refresher.getNextRefresh());
+		status.put("failures", refresher.getFailures());
+		
+		return status;
+	}
+	
+	@WriteOperation
+	public Map<String, Object> refresh() {
+		
+		return Map.of("started", refresher.refreshNow());
+	}
+}
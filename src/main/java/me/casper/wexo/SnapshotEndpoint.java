@@ -0,0 +1,116 @@
+package me.casper.wexo;
+
+import me.casper.wexo.api.Catalogue;
+import me.casper.wexo.api.CatalogueSnapshot;
+import me.casper.wexo.api.REST;
+import me.casper.wexo.api.SnapshotClient;
+import org.springframework.boot.actuate.endpoint.web.annotation.RestControllerEndpoint;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serves the catalogue as a compressed binary snapshot at /actuator/snapshot, which the other instances of a cluster pull instead of fetching the feed themselves.
+ * The ETag is the catalogue version, so an instance that is already up to date only gets a 304.
+ */
+@Component
+@RestControllerEndpoint(id = "snapshot")
+public class SnapshotEndpoint {
+	
+	// The snapshot of the catalogue version that was last asked for, every instance asks for the same one.
+	private volatile EncodedSnapshot encoded;
+	
+	// Only one request encodes a new version, the rest wait for it. A lock doesn't pin a waiting virtual thread to its carrier like a monitor would.
+	private final ReentrantLock encoding = new ReentrantLock();
+	
+	@GetMapping
+	public void snapshot(HttpServletRequest request, HttpServletResponse response) throws IOException {
+		
+		REST rest = WEXOApplication.getRestInstance();
+		
+		// Don't hand out an empty catalogue, the other instances keep what they have until there is something to pull.
+		if (rest == null || rest.getCatalogue().size() == 0)
+			throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "There is no catalogue yet!");
+		
+		Catalogue catalogue = rest.getCatalogue();
+		
+		response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().getHeaderValue());
+		response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+		
+		if (new ServletWebRequest(request, response).checkNotModified(SnapshotClient.etag(catalogue.getVersion())))
+			return;
+		
+		byte[] body = encode(catalogue);
+		
+		response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+		
+		String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+		
+		if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+			
+			response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+			response.setContentLength(body.length);
+			response.getOutputStream().write(body);
+			
+			return;
+		}
+		
+		try (InputStream input = new GZIPInputStream(new ByteArrayInputStream(body))) {
+			
+			StreamUtils.copy(input, response.getOutputStream());
+		}
+	}
+	
+	/**
+	 * Writes and compresses the snapshot of a catalogue, or reuses it if it was already written.
+	 */
+	private byte[] encode(Catalogue catalogue) throws IOException {
+		
+		EncodedSnapshot snapshot = encoded;
+		
+		if (snapshot != null && snapshot.version() == catalogue.getVersion()) return snapshot.body();
+		
+		encoding.lock();
+		
+		try {
+			
+			snapshot = encoded;
+			
+			if (snapshot != null && snapshot.version() == catalogue.getVersion()) return snapshot.body();
+			
+			ByteArrayOutputStream output = new ByteArrayOutputStream();
+			
+			try (GZIPOutputStream gzip = new GZIPOutputStream(output)) {
+				
+				CatalogueSnapshot.write(gzip, catalogue.getLastModified(), catalogue.getEntries());
+			}
+			
+			encoded = new EncodedSnapshot(catalogue.getVersion(), output.toByteArray());
+			
+			return encoded.body();
+			
+		} finally {
+			
+			encoding.unlock();
+		}
+	}
+	
+	private record EncodedSnapshot(long version, byte[] body) {
+	}
+}
@@ -0,0 +1,34 @@
+package me.casper.wexo;
+
+import me.casper.util.VirtualThreads;
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import static me.casper.wexo.WEXOApplication.LOGGER;
+
+/**
+ * Runs every request on its own virtual thread instead of Tomcat's worker pool, when "wexo.virtual-threads" is enabled.
+ * The refresher and the fetch engine switch over on the same property.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty("wexo.virtual-threads")
+public class VirtualThreadConfig {
+	
+	@Bean
+	public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadExecutor() {
+		
+		if (!VirtualThreads.isSupported()) {
+			
+			LOGGER.warn("Virtual threads need Java 21 or newer, falling back to platform threads! (Running {})", Runtime.version());
+			
+			return handler -> {};
+		}
+		
+		LOGGER.info("Handling requests on virtual threads.");
+		
+		return handler -> handler.setExecutor(VirtualThreads.newPerTaskExecutor("http-virtual-"));
+	}
+}
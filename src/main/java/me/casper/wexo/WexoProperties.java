@@ -0,0 +1,81 @@
+package me.casper.wexo;
+
+import lombok.Data;
+import me.casper.wexo.api.REST;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * The configuration of the application, everything can be set with "wexo." properties.
+ */
+@Data
+@Component
+@ConfigurationProperties("wexo")
+public class WexoProperties {
+	
+	// The path of the JSON cache, this is set to the first argument of the application.
+	private String cachePath;
+	
+	// Whether to handle requests and refreshes on virtual threads, this needs Java 21 and is ignored on older versions.
+	// Experimental, it has not been load tested against platform threads yet.
+	private boolean virtualThreads = false;
+	
+	private final Refresh refresh = new Refresh();
+	private final Fetch fetch = new Fetch();
+	private final PageCache pageCache = new PageCache();
+	private final Cluster cluster = new Cluster();
+	
+	@Data
+	public static class Refresh {
+		
+		// The time between two refreshes of the catalogue.
+		private Duration interval = Duration.ofMinutes(15);
+		
+		// The delay before retrying a failed refresh, it doubles on every failure in a row up to the max backoff.
+		private Duration initialBackoff = Duration.ofSeconds(30);
+		private Duration maxBackoff = Duration.ofMinutes(15);
+	}
+	
+	@Data
+	public static class Fetch {
+		
+		// The URL of the feed, the range of each request is appended to its query string.
+		private String baseUrl = REST.BASE_URL;
+		
+		// The amount of entries to fetch from the feed.
+		private int totalItems = REST.TOTAL_ITEMS;
+		
+		// The amount of ranges of the feed to fetch at the same time.
+		private int concurrency = 4;
+		
+		// The amount of times to retry a range of the feed, and the delay before the first retry.
+		private int retries = 2;
+		private Duration retryDelay = Duration.ofSeconds(1);
+	}
+	
+	@Data
+	public static class PageCache {
+		
+		// The total size of the rendered pages to keep.
+		private DataSize size = DataSize.ofMegabytes(32);
+		
+		// Index pages spanning more entries than this are streamed to the client instead, as caching them means holding the whole page in memory.
+		private int maxRange = 1_000;
+		
+		// Pages that haven't been asked for in this long are evicted, which is also how the pages of an older catalogue leave the cache.
+		private Duration expireAfterAccess = Duration.ofMinutes(10);
+	}
+	
+	@Data
+	public static class Cluster {
+		
+		// The management address of the instance that fetches the feed, such as "http://leader:8081". If it is set, this instance pulls its catalogue from there instead.
+		private String leaderUrl;
+		
+		// The time between two checks for a new catalogue on the leader.
+		private Duration pollInterval = Duration.ofSeconds(30);
+	}
+}
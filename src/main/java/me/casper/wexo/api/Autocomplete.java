@@ -0,0 +1,332 @@
+package me.casper.wexo.api;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Suggests titles and people for a prefix of what the user has typed, most recent first.
+ * The prefix is found by binary search over the sorted keys, and a segment tree over the release years picks the most recent of them.
+ */
+public final class Autocomplete {
+	
+	public static final int MAX_SUGGESTIONS = 20;
+	
+	public static final byte TITLE = 0;
+	public static final byte PERSON = 1;
+	
+	// Static and without a reference to an Autocomplete, so the buffers of a thread don't keep an old catalogue alive.
+	private static final ThreadLocal<Lookup> LOOKUPS = ThreadLocal.withInitial(Lookup::new);
+	
+	private final String[] keys; // Sorted
+	private final String[] labels;
+	private final String[] ids; // The ID of the entry for titles, null for people.
+	private final byte[] kinds;
+	private final int[] scores; // The release year of the entry, or of the most recent entry of a person.
+	
+	private final int[] tree; // Node -> Index of the suggestion with the highest score below it.
+	
+	public Autocomplete(List<Entry> entries) {
+		
+		HashMap<String, Suggestion> suggestions = new HashMap<>();
+		
+		for (Entry entry : entries) {
+			
+			suggestions.put(TITLE + entry.getId(), new Suggestion(entry.getTitle(), entry.getId(), TITLE, entry.getReleaseYear()));
+			
+			for (String actor : entry.getActors())
+				suggestions.merge(PERSON + actor, new Suggestion(actor, null, PERSON, entry.getReleaseYear()), Suggestion::latest);
+			
+			for (String director : entry.getDirectors())
+				suggestions.merge(PERSON + director, new Suggestion(director, null, PERSON, entry.getReleaseYear()), Suggestion::latest);
+		}
+		
+		Suggestion[] sorted = suggestions.values().toArray(new Suggestion[0]);
+		
+		Arrays.sort(sorted, (a, b) -> a.key().compareTo(b.key()));
+		
+		final int size = sorted.length;
+		
+		keys = new String[size];
+		labels = new String[size];
+		ids = new String[size];
+		kinds = new byte[size];
+		scores = new int[size];
+		
+		for (int i = 0; i < size; i++) {
+			
+			keys[i] = sorted[i].key();
+			labels[i] = sorted[i].label();
+			ids[i] = sorted[i].id();
+			kinds[i] = sorted[i].kind();
+			scores[i] = sorted[i].score();
+		}
+		
+		tree = new int[size * 2];
+		
+		for (int i = 0; i < size; i++)
+			tree[size + i] = i;
+		
+		for (int i = size - 1; i > 0; i--)
+			tree[i] = best(tree[i * 2], tree[i * 2 + 1]);
+	}
+	
+	/**
+	 * Finds the most recent suggestions starting with a prefix.
+	 *
+	 * @param prefix  What the user has typed so far.
+	 * @param results Receives the indices of the suggestions, most recent first. At most {@link #MAX_SUGGESTIONS} are used.
+	 * @return The amount of suggestions found.
+	 */
+	public int complete(String prefix, int[] results) {
+		
+		Lookup lookup = LOOKUPS.get();
+		
+		StringBuilder key = lookup.key;
+		SearchIndex.normalize(prefix, key);
+		
+		final int limit = Math.min(results.length, MAX_SUGGESTIONS);
+		
+		if (key.length() == 0 || limit == 0) return 0;
+		
+		Candidates candidates = lookup.candidates;
+		candidates.clear();
+		
+		// Take the best suggestion of a range, and split the rest of the range in two candidates, until we have enough.
+		push(candidates, key);
+		
+		// A prefix ending in a single "a" may also be the start of an "å". ("sa" -> "så")
+		if (SearchIndex.alternativePrefix(key, lookup.alternative)) push(candidates, lookup.alternative);
+		
+		int count = 0;
+		
+		while (count < limit && !candidates.isEmpty()) {
+			
+			final int rangeFrom = candidates.from[0];
+			final int rangeTo = candidates.to[0];
+			final int best = candidates.best[0];
+			
+			candidates.pop();
+			
+			results[count++] = best;
+			
+			if (rangeFrom < best) push(candidates, rangeFrom, best);
+			if (best + 1 < rangeTo) push(candidates, best + 1, rangeTo);
+		}
+		
+		return count;
+	}
+	
+	/**
+	 * Adds the range of suggestions starting with a prefix as a candidate, if there are any.
+	 */
+	private void push(Candidates candidates, CharSequence prefix) {
+		
+		final int from = bound(prefix, false);
+		final int to = bound(prefix, true);
+		
+		if (from < to) push(candidates, from, to);
+	}
+	
+	private void push(Candidates candidates, int from, int to) {
+		
+		final int best = max(from, to);
+		
+		candidates.push(from, to, best, scores[best]);
+	}
+	
+	public String getLabel(int index) {
+		
+		return labels[index];
+	}
+	
+	public String getId(int index) {
+		
+		return ids[index];
+	}
+	
+	public byte getKind(int index) {
+		
+		return kinds[index];
+	}
+	
+	public int size() {
+		
+		return keys.length;
+	}
+	
+	/**
+	 * Finds the first key that starts with the prefix, or the first key after all of them.
+	 */
+	private int bound(CharSequence prefix, boolean after) {
+		
+		int low = 0;
+		int high = keys.length;
+		
+		while (low < high) {
+			
+			final int middle = (low + high) >>> 1;
+			final int comparison = comparePrefix(keys[middle], prefix);
+			
+			if (comparison < 0 || (after && comparison == 0)) low = middle + 1;
+			else high = middle;
+		}
+		
+		return low;
+	}
+	
+	/**
+	 * Compares the start of a key with a prefix, so every key starting with the prefix compares as equal.
+	 */
+	private static int comparePrefix(String key, CharSequence prefix) {
+		
+		final int length = Math.min(key.length(), prefix.length());
+		
+		for (int i = 0; i < length; i++) {
+			
+			final int difference = key.charAt(i) - prefix.charAt(i);
+			
+			if (difference != 0) return difference;
+		}
+		
+		return key.length() < prefix.length() ? -1 : 0;
+	}
+	
+	/**
+	 * Finds the suggestion with the highest score in a range of the sorted suggestions.
+	 */
+	private int max(int from, int to) {
+		
+		int best = -1;
+		
+		for (from += keys.length, to += keys.length; from < to; from >>= 1, to >>= 1) {
+			
+			if ((from & 1) == 1) best = best(best, tree[from++]);
+			if ((to & 1) == 1) best = best(best, tree[--to]);
+		}
+		
+		return best;
+	}
+	
+	// Ties are broken alphabetically.
+	private int best(int a, int b) {
+		
+		if (a < 0) return b;
+		if (b < 0) return a;
+		
+		if (scores[a] != scores[b]) return scores[a] > scores[b] ? a : b;
+		
+		return Math.min(a, b);
+	}
+	
+	private record Suggestion(String key, String label, String id, byte kind, int score) {
+		
+		Suggestion(String label, String id, byte kind, int score) {
+			
+			this(SearchIndex.normalize(label), label, id, kind, score);
+		}
+		
+		Suggestion latest(Suggestion other) {
+			
+			return other.score > score ? other : this;
+		}
+	}
+	
+	private static final class Lookup {
+		
+		private final StringBuilder key = new StringBuilder();
+		private final StringBuilder alternative = new StringBuilder();
+		private final Candidates candidates = new Candidates();
+	}
+	
+	/**
+	 * A binary max-heap of ranges, ordered by the best suggestion in each range the same way as {@link #best(int, int)}.
+	 */
+	private static final class Candidates {
+		
+		// A lookup starts with up to two ranges, and every suggestion taken adds at most one candidate, so this is enough for a full lookup.
+		private final int[] from = new int[MAX_SUGGESTIONS + 2];
+		private final int[] to = new int[MAX_SUGGESTIONS + 2];
+		private final int[] best = new int[MAX_SUGGESTIONS + 2];
+		private final int[] score = new int[MAX_SUGGESTIONS + 2];
+		
+		private int size = 0;
+		
+		boolean isEmpty() {
+			
+			return size == 0;
+		}
+		
+		void clear() {
+			
+			size = 0;
+		}
+		
+		void push(int rangeFrom, int rangeTo, int rangeBest, int rangeScore) {
+			
+			int i = size++;
+			
+			from[i] = rangeFrom;
+			to[i] = rangeTo;
+			best[i] = rangeBest;
+			score[i] = rangeScore;
+			
+			while (i > 0 && before(i, (i - 1) / 2)) {
+				
+				swap(i, (i - 1) / 2);
+				
+				i = (i - 1) / 2;
+			}
+		}
+		
+		void pop() {
+			
+			swap(0, --size);
+			
+			int i = 0;
+			
+			while (true) {
+				
+				final int left = i * 2 + 1;
+				final int right = left + 1;
+				
+				int largest = i;
+				
+				if (left < size && before(left, largest)) largest = left;
+				if (right < size && before(right, largest)) largest = right;
+				
+				if (largest == i) return;
+				
+				swap(i, largest);
+				
+				i = largest;
+			}
+		}
+		
+		private boolean before(int a, int b) {
+			
+			if (score[a] != score[b]) return score[a] > score[b];
+			
+			return best[a] < best[b];
+		}
+		
+		private void swap(int a, int b) {
+			
+			int temporary = from[a];
+			from[a] = from[b];
+			from[b] = temporary;
+			
+			temporary = to[a];
+			to[a] = to[b];
+			to[b] = temporary;
+			
+			temporary = best[a];
+			best[a] = best[b];
+			best[b] = temporary;
+			
+			temporary = score[a];
+			score[a] = score[b];
+			score[b] = temporary;
+		}
+	}
+}
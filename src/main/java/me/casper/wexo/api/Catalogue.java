@@ -0,0 +1,323 @@
+package me.casper.wexo.api;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An immutable snapshot of every entry we serve, together with the indexes built over it.
+ * A new snapshot is built by the update thread on every refresh and swapped in as a whole, so request threads never see a half-refreshed catalogue.
+ */
+public final class Catalogue {
+	
+	public static final Catalogue EMPTY = new Catalogue(List.of(), 0);
+	
+	private static final int MAX_CACHED_GENRE_COUNTS = 64;
+	
+	private final List<Entry> entries;
+	private final long version; // A hash of every entry in order, so two catalogues with the same content have the same version.
+	private final long lastModified;
+	private final HashMap<String, Integer> positions = new HashMap<>(); // A primary key index over the entries. (ID -> Position)
+	private final CatalogueIndex index;
+	private final SearchIndex searchIndex;
+	private final Autocomplete autocomplete;
+	
+	// The genre counts of the ranges asked for, most requests are for the default range of the index page. ("from-to type" -> Counts)
+	private final ConcurrentHashMap<String, Map<String, Integer>> genreCounts = new ConcurrentHashMap<>();
+	
+	/**
+	 * @param entries      The entries of the catalogue, in the order they are served.
+	 * @param lastModified The time the content of the catalogue last changed.
+	 */
+	public Catalogue(List<Entry> entries, long lastModified) {
+		
+		this.entries = Collections.unmodifiableList(new ArrayList<>(entries));
+		this.lastModified = lastModified;
+		
+		long version = 17;
+		
+		for (int i = 0; i < this.entries.size(); i++) {
+			
+			Entry entry = this.entries.get(i);
+			
+			positions.putIfAbsent(entry.getId(), i);
+			
+			version = version * 1_000_003 + entry.getContentHash();
+		}
+		
+		this.version = version;
+		
+		index = new CatalogueIndex(this.entries);
+		searchIndex = new SearchIndex(this.entries);
+		autocomplete = new Autocomplete(this.entries);
+	}
+	
+	public ArrayList<Entry> filter(int from, int to, String genre, String type) {
+		
+		// Make sure the range is valid.
+		if (from < 0 || to < 0 || from > to)
+			return null;
+		
+		BitSet positions = index.filter(from, to, genre, type);
+		
+		ArrayList<Entry> filtered = new ArrayList<>(positions.cardinality());
+		
+		for (int i = positions.nextSetBit(0); i >= 0; i = positions.nextSetBit(i + 1)) {
+			
+			filtered.add(entries.get(i));
+		}
+		
+		return filtered;
+	}
+	
+	/**
+	 * Selects the entries matching the given filters, without copying them out of the catalogue.
+	 * Entries are only looked up as the selection is iterated, so a page can be rendered while it is being sent, no matter how wide the range is.
+	 *
+	 * @param from  The first index to include.
+	 * @param to    The index to stop at (exclusive).
+	 * @param genre The genre to filter by, or "all".
+	 * @param type  The program type to filter by, or "all".
+	 * @return The matching entries in catalogue order, or null if the range is invalid.
+	 */
+	public Selection select(int from, int to, String genre, String type) {
+		
+		// Make sure the range is valid.
+		if (from < 0 || to < 0 || from > to)
+			return null;
+		
+		return new Selection(entries, index.filter(from, to, genre, type), null);
+	}
+	
+	/**
+	 * Selects the entries matching a query, in the order it asks for, without copying them out of the catalogue.
+	 *
+	 * @param query The query to match.
+	 * @return The matching entries, or null if the range is invalid.
+	 */
+	public Selection query(CatalogueQuery query) {
+		
+		// Make sure the range is valid.
+		if (query.from() < 0 || query.to() < 0 || query.from() > query.to())
+			return null;
+		
+		BitSet matches = index.query(query);
+		
+		return new Selection(entries, matches, index.order(matches, query));
+	}
+	
+	/**
+	 * Searches the titles, descriptions, actors and directors of the catalogue.
+	 *
+	 * @param query The words to search for, each word matches any word that starts with it.
+	 * @param limit The maximum amount of entries to return.
+	 * @return The matching entries, in catalogue order.
+	 */
+	public ArrayList<Entry> search(String query, int limit) {
+		
+		BitSet positions = searchIndex.search(query);
+		
+		ArrayList<Entry> found = new ArrayList<>(Math.min(positions.cardinality(), limit));
+		
+		for (int i = positions.nextSetBit(0); i >= 0 && found.size() < limit; i = positions.nextSetBit(i + 1)) {
+			
+			found.add(entries.get(i));
+		}
+		
+		return found;
+	}
+	
+	/**
+	 * Counts the entries per genre in a range of the catalogue.
+	 * The counts are kept for as long as the catalogue is served, so each range is only counted once per refresh.
+	 *
+	 * @param from The first index to include.
+	 * @param to   The index to stop at (exclusive).
+	 * @param type The program type to filter by, or "all".
+	 * @return An unmodifiable map of genres to the amount of entries they have in the range.
+	 */
+	public Map<String, Integer> countGenres(int from, int to, String type) {
+		
+		final String key = from + "-" + to + " " + type.toLowerCase(Locale.ROOT);
+		
+		Map<String, Integer> counts = genreCounts.get(key);
+		
+		if (counts != null) return counts;
+		
+		counts = Collections.unmodifiableMap(index.countGenres(index.filter(from, to, "all", type)));
+		
+		// The ranges come from the request, so only keep a handful of them.
+		if (genreCounts.size() < MAX_CACHED_GENRE_COUNTS) genreCounts.putIfAbsent(key, counts);
+		
+		return counts;
+	}
+	
+	public HashMap<String, ImageVariants> getGenreArt() {
+		
+		return index.getGenreArt();
+	}
+	
+	public Entry getEntry(String id) {
+		
+		Integer position = positions.get(id);
+		
+		return position == null ? null : entries.get(position);
+	}
+	
+	/**
+	 * Finds the position of an entry in the catalogue.
+	 *
+	 * @param id The ID of the entry.
+	 * @return The position of the entry, or -1 if it isn't in the catalogue.
+	 */
+	public int positionOf(String id) {
+		
+		return positions.getOrDefault(id, -1);
+	}
+	
+	public boolean contains(String id) {
+		
+		return positions.containsKey(id);
+	}
+	
+	public long getVersion() {
+		
+		return version;
+	}
+	
+	public long getLastModified() {
+		
+		return lastModified;
+	}
+	
+	public List<Entry> getEntries() {
+		
+		return entries;
+	}
+	
+	public CatalogueIndex getIndex() {
+		
+		return index;
+	}
+	
+	public SearchIndex getSearchIndex() {
+		
+		return searchIndex;
+	}
+	
+	public Autocomplete getAutocomplete() {
+		
+		return autocomplete;
+	}
+	
+	public int size() {
+		
+		return entries.size();
+	}
+	
+	public boolean isEmpty() {
+		
+		return entries.isEmpty();
+	}
+	
+	/**
+	 * The entries at a set of positions in the catalogue, looked up as they are iterated.
+	 * They are iterated in catalogue order, or in the order of a sorted index of the catalogue.
+	 */
+	public static final class Selection implements Iterable<Entry> {
+		
+		private final List<Entry> entries;
+		private final BitSet positions;
+		private final CatalogueIndex.Order order;
+		
+		private Selection(List<Entry> entries, BitSet positions, CatalogueIndex.Order order) {
+			
+			this.entries = entries;
+			this.positions = positions;
+			this.order = order;
+		}
+		
+		public boolean isEmpty() {
+			
+			return positions.isEmpty();
+		}
+		
+		public int size() {
+			
+			return positions.cardinality();
+		}
+		
+		@Override
+		public Iterator<Entry> iterator() {
+			
+			if (order != null) return new OrderedIterator();
+			
+			return new Iterator<>() {
+				
+				private int next = positions.nextSetBit(0);
+				
+				@Override
+				public boolean hasNext() {
+					
+					return next >= 0;
+				}
+				
+				@Override
+				public Entry next() {
+					
+					if (next < 0) throw new NoSuchElementException();
+					
+					Entry entry = entries.get(next);
+					
+					next = positions.nextSetBit(next + 1);
+					
+					return entry;
+				}
+			};
+		}
+		
+		/**
+		 * Walks the slice of a sorted index, skipping the positions that aren't selected.
+		 */
+		private final class OrderedIterator implements Iterator<Entry> {
+			
+			private final int step = order.descending() ? -1 : 1;
+			private final int stop = order.descending() ? order.from() - 1 : order.to();
+			
+			private int next = advance(order.descending() ? order.to() - 1 : order.from());
+			
+			@Override
+			public boolean hasNext() {
+				
+				return next != stop;
+			}
+			
+			@Override
+			public Entry next() {
+				
+				if (next == stop) throw new NoSuchElementException();
+				
+				Entry entry = entries.get(order.positions()[next]);
+				
+				next = advance(next + step);
+				
+				return entry;
+			}
+			
+			private int advance(int index) {
+				
+				while (index != stop && !positions.get(order.positions()[index]))
+					index += step;
+				
+				return index;
+			}
+		}
+	}
+}
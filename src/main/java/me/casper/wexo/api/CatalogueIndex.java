@@ -0,0 +1,348 @@
+package me.casper.wexo.api;
+
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * An inverted index from genres and program types to the positions of the entries that have them, built once per refresh.
+ */
+public final class CatalogueIndex {
+	
+	private static final BitSet NONE = new BitSet();
+	
+	private final int size;
+	
+	private final HashMap<String, BitSet> genres = new HashMap<>(); // Genre -> Positions
+	private final HashMap<String, BitSet> types = new HashMap<>(); // Program Type (lowercase) -> Positions
+	
+	private final HashMap<String, Integer> genreCounts = new HashMap<>(); // Genre -> Entries in the whole catalogue.
+	private final HashMap<String, ImageVariants> genreArt = new HashMap<>(); // Genre -> Images of the entry whose backdrop is used
+	
+	private final int[] byYear; // Positions sorted by release year, ties in catalogue order.
+	private final int[] years; // The release year of each position in byYear, to binary search.
+	private final int[] yearRanks; // Position -> Index in byYear
+	
+	private final int[] byTitle; // Positions sorted by title in Danish order, ties in catalogue order.
+	private final int[] titleRanks; // Position -> Index in byTitle
+	
+	public CatalogueIndex(List<Entry> entries) {
+		
+		size = entries.size();
+		
+		for (int i = 0; i < size; i++) {
+			
+			Entry entry = entries.get(i);
+			
+			types.computeIfAbsent(typeKey(entry.getProgramType()), key -> new BitSet(size)).set(i);
+			
+			for (String genre : entry.getGenres()) {
+				
+				genres.computeIfAbsent(genre, key -> new BitSet(size)).set(i);
+				genreCounts.merge(genre, 1, Integer::sum);
+				
+				// Use the first entry with a 16:9 backdrop as the genre's cover art.
+				if (entry.getImages().getTile() != null)
+					genreArt.putIfAbsent(genre, entry.getImages());
+			}
+		}
+		
+		// Pack the year and the position into a long, so the positions sort by year with a primitive sort.
+		long[] yearKeys = new long[size];
+		
+		for (int i = 0; i < size; i++)
+			yearKeys[i] = (long) entries.get(i).getReleaseYear() << 32 | i;
+		
+		Arrays.sort(yearKeys);
+		
+		byYear = new int[size];
+		years = new int[size];
+		
+		for (int i = 0; i < size; i++) {
+			
+			byYear[i] = (int) yearKeys[i];
+			years[i] = (int) (yearKeys[i] >> 32);
+		}
+		
+		// Collation keys compare as the collator would, without it having to look at the titles again for every comparison.
+		Collator collator = Collator.getInstance(Locale.forLanguageTag("da-DK"));
+		
+		CollationKey[] titles = new CollationKey[size];
+		Integer[] sorted = new Integer[size];
+		
+		for (int i = 0; i < size; i++) {
+			
+			titles[i] = collator.getCollationKey(entries.get(i).getTitle());
+			sorted[i] = i;
+		}
+		
+		Arrays.sort(sorted, (a, b) -> {
+			
+			final int order = titles[a].compareTo(titles[b]);
+			
+			return order != 0 ? order : Integer.compare(a, b);
+		});
+		
+		byTitle = new int[size];
+		
+		for (int i = 0; i < size; i++)
+			byTitle[i] = sorted[i];
+		
+		yearRanks = ranks(byYear);
+		titleRanks = ranks(byTitle);
+	}
+	
+	/**
+	 * Finds the positions of the entries matching the given filters.
+	 *
+	 * @param from  The first position to include.
+	 * @param to    The position to stop at (exclusive).
+	 * @param genre The genre to filter by, or "all".
+	 * @param type  The program type to filter by, or "all".
+	 * @return The matching positions, this set is owned by the caller.
+	 */
+	public BitSet filter(int from, int to, String genre, String type) {
+		
+		BitSet positions = new BitSet(size);
+		
+		from = Math.max(from, 0);
+		to = Math.min(to, size);
+		
+		if (from >= to) return positions;
+		
+		positions.set(from, to);
+		
+		if (!genre.equalsIgnoreCase("all"))
+			positions.and(genres.getOrDefault(genre, NONE));
+		
+		if (!type.equalsIgnoreCase("all"))
+			positions.and(types.getOrDefault(typeKey(type), NONE));
+		
+		return positions;
+	}
+	
+	/**
+	 * Finds the positions of the entries matching a query, ignoring its sort order.
+	 * A year range is a slice of the positions sorted by year, found with two binary searches.
+	 *
+	 * @param query The query to match.
+	 * @return The matching positions, this set is owned by the caller.
+	 */
+	public BitSet query(CatalogueQuery query) {
+		
+		BitSet positions = filter(query.from(), query.to(), "all", query.type());
+		
+		if (query.hasGenres()) {
+			
+			BitSet genrePositions = query.matchAll() ? null : new BitSet(size);
+			
+			for (String genre : query.genres()) {
+				
+				BitSet matches = genres.getOrDefault(genre, NONE);
+				
+				if (genrePositions == null)
+					genrePositions = (BitSet) matches.clone();
+				else if (query.matchAll())
+					genrePositions.and(matches);
+				else
+					genrePositions.or(matches);
+			}
+			
+			positions.and(genrePositions);
+		}
+		
+		if (query.hasYears() && !positions.isEmpty()) {
+			
+			final int first = lowerBound(query.fromYear());
+			final int last = upperBound(query.toYear());
+			
+			BitSet yearPositions = new BitSet(size);
+			
+			for (int i = first; i < last; i++)
+				yearPositions.set(byYear[i]);
+			
+			positions.and(yearPositions);
+		}
+		
+		return positions;
+	}
+	
+	/**
+	 * Decides the cheapest way to walk a set of matches in a sort order.
+	 *
+	 * @param matches The positions matching the query, as returned by {@link #query(CatalogueQuery)}.
+	 * @param query   The query the positions match.
+	 * @return The order to walk the matches in, or null for catalogue order.
+	 */
+	public Order order(BitSet matches, CatalogueQuery query) {
+		
+		final CatalogueQuery.Sort sort = query.sort();
+		final boolean descending = sort.isDescending();
+		
+		if (sort == CatalogueQuery.Sort.CATALOGUE) return null;
+		
+		final boolean yearSort = sort == CatalogueQuery.Sort.YEAR || sort == CatalogueQuery.Sort.YEAR_DESC;
+		
+		final int[] sorted = yearSort ? byYear : byTitle;
+		final int[] ranks = yearSort ? yearRanks : titleRanks;
+		
+		final int matched = matches.cardinality();
+		final long sortCost = (long) matched * (32 - Integer.numberOfLeadingZeros(matched));
+		
+		if (yearSort && query.hasYears()) {
+			
+			final int first = lowerBound(query.fromYear());
+			final int last = upperBound(query.toYear());
+			
+			if (last - first <= sortCost) return new Order(sorted, first, last, descending);
+		}
+		
+		if (sortCost >= size) return new Order(sorted, 0, size, descending);
+		
+		int[] matchedRanks = new int[matched];
+		
+		for (int i = matches.nextSetBit(0), j = 0; i >= 0; i = matches.nextSetBit(i + 1))
+			matchedRanks[j++] = ranks[i];
+		
+		Arrays.sort(matchedRanks);
+		
+		for (int i = 0; i < matched; i++)
+			matchedRanks[i] = sorted[matchedRanks[i]];
+		
+		return new Order(matchedRanks, 0, matched, descending);
+	}
+	
+	/**
+	 * Finds the next entry matching the given filters, without building the full set of matches.
+	 *
+	 * @param from  The position to start searching from (inclusive).
+	 * @param genre The genre to filter by, or "all".
+	 * @param type  The program type to filter by, or "all".
+	 * @return The position of the next matching entry, or -1 if there are none.
+	 */
+	public int next(int from, String genre, String type) {
+		
+		final boolean allGenres = genre.equalsIgnoreCase("all");
+		final boolean allTypes = type.equalsIgnoreCase("all");
+		
+		BitSet genrePositions = allGenres ? null : genres.getOrDefault(genre, NONE);
+		BitSet typePositions = allTypes ? null : types.getOrDefault(typeKey(type), NONE);
+		
+		// Walk the genre postings when filtering by genre, as they are far smaller than the type postings, and check the type per position.
+		BitSet driver = genrePositions != null ? genrePositions : typePositions;
+		BitSet check = genrePositions != null ? typePositions : null;
+		
+		if (driver == null)
+			return from < size ? Math.max(from, 0) : -1;
+		
+		for (int i = driver.nextSetBit(Math.max(from, 0)); i >= 0 && i < size; i = driver.nextSetBit(i + 1)) {
+			
+			if (check == null || check.get(i)) return i;
+		}
+		
+		return -1;
+	}
+	
+	/**
+	 * Counts the entries per genre within the given positions.
+	 *
+	 * @param positions The positions to count, as returned by {@link #filter(int, int, String, String)}.
+	 * @return A map of genres to the amount of entries they have within the positions.
+	 */
+	public HashMap<String, Integer> countGenres(BitSet positions) {
+		
+		// If every entry is selected the answer has already been computed.
+		if (positions.cardinality() == size)
+			return new HashMap<>(genreCounts);
+		
+		HashMap<String, Integer> counts = new HashMap<>();
+		
+		for (Map.Entry<String, BitSet> genre : genres.entrySet()) {
+			
+			BitSet matches = (BitSet) genre.getValue().clone();
+			matches.and(positions);
+			
+			int count = matches.cardinality();
+			
+			if (count > 0) counts.put(genre.getKey(), count);
+		}
+		
+		return counts;
+	}
+	
+	public HashMap<String, Integer> getGenreCounts() {
+		
+		return genreCounts;
+	}
+	
+	public HashMap<String, ImageVariants> getGenreArt() {
+		
+		return genreArt;
+	}
+	
+	public int size() {
+		
+		return size;
+	}
+	
+	/**
+	 * Finds the first index in byYear with a release year of at least the given year.
+	 */
+	private int lowerBound(int year) {
+		
+		int low = 0;
+		int high = size;
+		
+		while (low < high) {
+			
+			final int middle = (low + high) >>> 1;
+			
+			if (years[middle] < year) low = middle + 1;
+			else high = middle;
+		}
+		
+		return low;
+	}
+	
+	/**
+	 * Finds the first index in byYear with a release year after the given year.
+	 */
+	private int upperBound(int year) {
+		
+		return year == Integer.MAX_VALUE ? size : lowerBound(year + 1);
+	}
+	
+	/**
+	 * Inverts a permutation of the positions, so the index of a position in it can be looked up.
+	 */
+	private static int[] ranks(int[] sorted) {
+		
+		int[] ranks = new int[sorted.length];
+		
+		for (int i = 0; i < sorted.length; i++)
+			ranks[sorted[i]] = i;
+		
+		return ranks;
+	}
+	
+	private static String typeKey(String type) {
+		
+		return type.toLowerCase(Locale.ROOT);
+	}
+	
+	/**
+	 * A slice of positions to walk in order, skipping the positions that don't match.
+	 *
+	 * @param positions  The positions, in ascending order.
+	 * @param from       The first index of the slice.
+	 * @param to         The index to stop at (exclusive).
+	 * @param descending Whether to walk the slice from the end.
+	 */
+	public record Order(int[] positions, int from, int to, boolean descending) {
+	}
+}
@@ -0,0 +1,63 @@
+package me.casper.wexo.api;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A query over the catalogue, as answered by {@link Catalogue#query(CatalogueQuery)}.
+ *
+ * @param from     The first position to include.
+ * @param to       The position to stop at (exclusive).
+ * @param genres   The genres to filter by, an empty list or "all" doesn't filter by genre.
+ * @param matchAll Whether an entry must have every genre, instead of any of them.
+ * @param type     The program type to filter by, or "all".
+ * @param fromYear The earliest release year to include.
+ * @param toYear   The latest release year to include.
+ * @param sort     The order to return the entries in.
+ */
+public record CatalogueQuery(int from, int to, List<String> genres, boolean matchAll, String type, int fromYear, int toYear, Sort sort) {
+	
+	public CatalogueQuery {
+		
+		// "all" among the genres means the same as no genres at all.
+		genres = genres.stream().anyMatch(genre -> genre.equalsIgnoreCase("all")) ? List.of() : List.copyOf(genres);
+	}
+	
+	public boolean hasGenres() {
+		
+		return !genres.isEmpty();
+	}
+	
+	public boolean hasYears() {
+		
+		return fromYear != Integer.MIN_VALUE || toYear != Integer.MAX_VALUE;
+	}
+	
+	public enum Sort {
+		
+		CATALOGUE, YEAR, YEAR_DESC, TITLE, TITLE_DESC;
+		
+		public boolean isDescending() {
+			
+			return this == YEAR_DESC || this == TITLE_DESC;
+		}
+		
+		/**
+		 * Parses a sort order, such as "year", "-year" (newest first), "title" or "-title".
+		 *
+		 * @throws IllegalArgumentException If it isn't a sort order.
+		 */
+		public static Sort parse(String sort) {
+			
+			return switch (sort.toLowerCase(Locale.ROOT)) {
+				
+				case "", "catalogue", "feed" -> CATALOGUE;
+				case "year" -> YEAR;
+				case "-year" -> YEAR_DESC;
+				case "title" -> TITLE;
+				case "-title" -> TITLE_DESC;
+				default -> throw new IllegalArgumentException("Unknown sort order " + sort + "!");
+			};
+		}
+	}
+}
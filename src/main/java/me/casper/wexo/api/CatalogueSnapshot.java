@@ -0,0 +1,282 @@
+package me.casper.wexo.api;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * A compact binary copy of the cache, which is a lot faster to load than the JSON cache.
+ */
+public final class CatalogueSnapshot {
+	
+	public static final int MAGIC = 0x5745584F; // "WEXO"
+	public static final int FORMAT_VERSION = 1;
+	
+	private final long lastUpdated;
+	private final List<Entry> entries;
+	
+	private CatalogueSnapshot(long lastUpdated, List<Entry> entries) {
+		
+		this.lastUpdated = lastUpdated;
+		this.entries = entries;
+	}
+	
+	/**
+	 * Writes a snapshot of the given entries.
+	 *
+	 * @param output      The stream to write the snapshot to, it is not closed.
+	 * @param lastUpdated The time the entries were fetched.
+	 * @param entries     The entries to write.
+	 */
+	public static void write(OutputStream output, long lastUpdated, List<Entry> entries) throws IOException {
+		
+		// Collect every distinct string first, so each one is only written once.
+		LinkedHashMap<String, Integer> strings = new LinkedHashMap<>();
+		
+		for (Entry entry : entries) {
+			
+			intern(strings, entry.getId());
+			intern(strings, entry.getTitle());
+			intern(strings, entry.getDescription());
+			intern(strings, entry.getProgramType());
+			
+			for (int i = 0; i < entry.getCovers().size(); i++)
+				intern(strings, entry.getCovers().getUrl(i));
+			
+			for (int i = 0; i < entry.getBackdrops().size(); i++)
+				intern(strings, entry.getBackdrops().getUrl(i));
+			
+			entry.getGenres().forEach(genre -> intern(strings, genre));
+			entry.getActors().forEach(actor -> intern(strings, actor));
+			entry.getDirectors().forEach(director -> intern(strings, director));
+			entry.getTrailers().forEach(trailer -> intern(strings, trailer));
+		}
+		
+		// A header, the string table, then the entries with their strings as indices into the table. Big-endian, with length-prefixed strings and lists.
+		CRC32 checksum = new CRC32();
+		
+		DataOutputStream data = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(output, checksum), 65_536));
+		
+		data.writeInt(MAGIC);
+		data.writeInt(FORMAT_VERSION);
+		data.writeLong(lastUpdated);
+		
+		data.writeInt(strings.size());
+		
+		for (String string : strings.keySet()) {
+			
+			byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+			
+			data.writeInt(bytes.length);
+			data.write(bytes);
+		}
+		
+		data.writeInt(entries.size());
+		
+		for (Entry entry : entries) {
+			
+			data.writeInt(strings.get(entry.getId()));
+			data.writeInt(strings.get(entry.getTitle()));
+			data.writeInt(strings.get(entry.getDescription()));
+			data.writeInt(strings.get(entry.getProgramType()));
+			
+			data.writeInt(entry.getReleaseYear());
+			
+			writeImages(data, strings, entry.getCovers());
+			writeImages(data, strings, entry.getBackdrops());
+			
+			writeStrings(data, strings, entry.getGenres());
+			writeStrings(data, strings, entry.getActors());
+			writeStrings(data, strings, entry.getDirectors());
+			writeStrings(data, strings, entry.getTrailers());
+		}
+		
+		data.flush();
+		
+		// The checksum covers everything written so far, so it's written straight to the output.
+		new DataOutputStream(output).writeLong(checksum.getValue());
+	}
+	
+	/**
+	 * Reads a snapshot by memory mapping it.
+	 *
+	 * @param path The path of the snapshot.
+	 * @return The snapshot.
+	 * @throws IOException If the snapshot couldn't be read, or if it is corrupt or of an unsupported version.
+	 */
+	public static CatalogueSnapshot read(Path path) throws IOException {
+		
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			
+			final long size = channel.size();
+			
+			// The header and the checksum alone take up 24 bytes.
+			if (size < 24 || size > Integer.MAX_VALUE)
+				throw new IOException("The snapshot has an invalid size! (" + size + " bytes)");
+			
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			
+			return read(buffer);
+		}
+	}
+	
+	/**
+	 * Reads a snapshot that is already in memory, such as one received from another instance.
+	 *
+	 * @param buffer The snapshot, from its first byte to its last.
+	 * @return The snapshot.
+	 * @throws IOException If the snapshot is corrupt or of an unsupported version.
+	 */
+	public static CatalogueSnapshot read(ByteBuffer buffer) throws IOException {
+		
+		final int size = buffer.limit();
+		
+		if (size < 24)
+			throw new IOException("The snapshot has an invalid size! (" + size + " bytes)");
+		
+		try {
+			
+			// Verify the checksum before reading anything else.
+			CRC32 checksum = new CRC32();
+			checksum.update(buffer.slice(0, size - Long.BYTES));
+			
+			if (checksum.getValue() != buffer.getLong(size - Long.BYTES))
+				throw new IOException("The snapshot is corrupt! (Checksum Mismatch)");
+			
+			if (buffer.getInt() != MAGIC)
+				throw new IOException("The file isn't a snapshot! (Invalid Magic)");
+			
+			final int version = buffer.getInt();
+			
+			if (version != FORMAT_VERSION)
+				throw new IOException("Unsupported snapshot version! (Version: " + version + ")");
+			
+			final long lastUpdated = buffer.getLong();
+			
+			String[] strings = new String[buffer.getInt()];
+			byte[] bytes = new byte[256];
+			
+			for (int i = 0; i < strings.length; i++) {
+				
+				final int length = buffer.getInt();
+				
+				if (length > bytes.length)
+					bytes = new byte[Math.max(length, bytes.length * 2)];
+				
+				buffer.get(bytes, 0, length);
+				
+				strings[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+			}
+			
+			final int entryCount = buffer.getInt();
+			
+			ArrayList<Entry> entries = new ArrayList<>(entryCount);
+			
+			for (int i = 0; i < entryCount; i++) {
+				
+				String id = strings[buffer.getInt()];
+				String title = strings[buffer.getInt()];
+				String description = strings[buffer.getInt()];
+				String programType = strings[buffer.getInt()];
+				
+				int releaseYear = buffer.getInt();
+				
+				ImageSet covers = readImages(buffer, strings);
+				ImageSet backdrops = readImages(buffer, strings);
+				
+				ArrayList<String> genres = readStrings(buffer, strings);
+				ArrayList<String> actors = readStrings(buffer, strings);
+				ArrayList<String> directors = readStrings(buffer, strings);
+				ArrayList<String> trailers = readStrings(buffer, strings);
+				
+				entries.add(new Entry(id, title, description, programType, releaseYear, covers, backdrops, genres, actors, directors, trailers));
+			}
+			
+			return new CatalogueSnapshot(lastUpdated, entries);
+			
+		} catch (RuntimeException e) {
+			
+			// Reading past the end of the buffer or an out of range string index both mean the snapshot is broken.
+			throw new IOException("The snapshot is corrupt!", e);
+		}
+	}
+	
+	public long getLastUpdated() {
+		
+		return lastUpdated;
+	}
+	
+	public List<Entry> getEntries() {
+		
+		return entries;
+	}
+	
+	private static void intern(Map<String, Integer> strings, String string) {
+		
+		strings.putIfAbsent(string, strings.size());
+	}
+	
+	private static void writeImages(DataOutputStream data, Map<String, Integer> strings, ImageSet images) throws IOException {
+		
+		data.writeInt(images.size());
+		
+		for (int i = 0; i < images.size(); i++) {
+			
+			data.writeInt(strings.get(images.getUrl(i)));
+			data.writeInt(images.getWidth(i));
+			data.writeInt(images.getHeight(i));
+		}
+	}
+	
+	private static void writeStrings(DataOutputStream data, Map<String, Integer> strings, List<String> values) throws IOException {
+		
+		data.writeInt(values.size());
+		
+		for (String value : values)
+			data.writeInt(strings.get(value));
+	}
+	
+	private static ImageSet readImages(ByteBuffer buffer, String[] strings) {
+		
+		final int count = buffer.getInt();
+		
+		ImageSet.Builder images = ImageSet.builder();
+		
+		for (int i = 0; i < count; i++) {
+			
+			String url = strings[buffer.getInt()];
+			
+			int width = buffer.getInt();
+			int height = buffer.getInt();
+			
+			images.add(url, width, height);
+		}
+		
+		return images.build();
+	}
+	
+	private static ArrayList<String> readStrings(ByteBuffer buffer, String[] strings) {
+		
+		final int count = buffer.getInt();
+		
+		ArrayList<String> values = new ArrayList<>(count);
+		
+		for (int i = 0; i < count; i++)
+			values.add(strings[buffer.getInt()]);
+		
+		return values;
+	}
+}
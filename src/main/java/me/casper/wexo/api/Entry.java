@@ -1,9 +1,9 @@
 package me.casper.wexo.api;
 
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 
 @Data
@@ -17,13 +17,93 @@ public class Entry {
 	
 	private final int releaseYear;
 	
-	private final HashMap<String, List<Integer>> covers;
-	private final HashMap<String, List<Integer>> backdrops;
+	private final ImageSet covers;
+	private final ImageSet backdrops;
 	
-	private final ArrayList<String> genres;
+	private final List<String> genres;
 	
-	private final ArrayList<String> actors;
-	private final ArrayList<String> directors;
+	private final List<String> actors;
+	private final List<String> directors;
 	
-	private final ArrayList<String> trailers;
+	private final List<String> trailers;
+	
+	// The images picked for each place the entry is shown, derived from the covers and backdrops.
+	@EqualsAndHashCode.Exclude
+	@ToString.Exclude
+	private final ImageVariants images;
+	
+	// A hash of everything above, used to tell whether an entry changed between two refreshes.
+	@EqualsAndHashCode.Exclude
+	@ToString.Exclude
+	private final long contentHash;
+	
+	public Entry(String id,
+	             String title,
+	             String description,
+	             String programType,
+	             int releaseYear,
+	             ImageSet covers,
+	             ImageSet backdrops,
+	             List<String> genres,
+	             List<String> actors,
+	             List<String> directors,
+	             List<String> trailers
+	) {
+		
+		this.id = id;
+		
+		this.title = title;
+		this.description = description;
+		
+		// Program types, genres and people repeat across thousands of entries, so they all share a single copy of each string.
+		this.programType = programType.intern();
+		
+		this.releaseYear = releaseYear;
+		
+		this.covers = covers;
+		this.backdrops = backdrops;
+		
+		this.images = ImageVariants.of(covers, backdrops);
+		
+		this.genres = intern(genres);
+		
+		this.actors = intern(actors);
+		this.directors = intern(directors);
+		
+		this.trailers = List.copyOf(trailers);
+		
+		long hash = 17;
+		
+		hash = hash(hash, id.hashCode());
+		hash = hash(hash, title.hashCode());
+		hash = hash(hash, description.hashCode());
+		hash = hash(hash, this.programType.hashCode());
+		hash = hash(hash, releaseYear);
+		hash = hash(hash, covers.contentHash());
+		hash = hash(hash, backdrops.contentHash());
+		hash = hash(hash, this.genres.hashCode());
+		hash = hash(hash, this.actors.hashCode());
+		hash = hash(hash, this.directors.hashCode());
+		hash = hash(hash, this.trailers.hashCode());
+		
+		contentHash = hash;
+	}
+	
+	private static long hash(long hash, long value) {
+		
+		return hash * 1_000_003 + value;
+	}
+	
+	/**
+	 * Copies a list of strings into an exactly sized immutable list of interned strings.
+	 */
+	private static List<String> intern(List<String> values) {
+		
+		String[] interned = new String[values.size()];
+		
+		for (int i = 0; i < interned.length; i++)
+			interned[i] = values.get(i).intern();
+		
+		return List.of(interned);
+	}
 }
@@ -0,0 +1,452 @@
+package me.casper.wexo.api;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import me.casper.util.Time;
+import me.casper.util.VirtualThreads;
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
+
+import static me.casper.wexo.WEXOApplication.LOGGER;
+
+/**
+ * Fetches ranges of the feed over a single shared HTTP client, running a configurable amount of range requests at the same time.
+ */
+public class FetchEngine {
+	
+	private final OkHttpClient client;
+	private final ExecutorService executor;
+	
+	private final int retries;
+	private final Duration retryDelay;
+	
+	// The validators and entry IDs of the last response for each range URL, used to make conditional requests.
+	private final ConcurrentHashMap<String, RangeState> rangeStates = new ConcurrentHashMap<>();
+	
+	public FetchEngine(int concurrency) {
+		
+		this(concurrency, 0, Duration.ZERO);
+	}
+	
+	public FetchEngine(int concurrency, int retries, Duration retryDelay) {
+		
+		this(concurrency, retries, retryDelay, false);
+	}
+	
+	/**
+	 * @param concurrency    The amount of ranges to fetch at the same time.
+	 * @param retries        The amount of times to retry a range after a network error or a server error.
+	 * @param retryDelay     The delay before the first retry of a range, it doubles on every following retry.
+	 * @param virtualThreads Whether to fetch on virtual threads, which needs Java 21.
+	 */
+	public FetchEngine(int concurrency, int retries, Duration retryDelay, boolean virtualThreads) {
+		
+		if (concurrency < 1)
+			throw new IllegalArgumentException("The fetch concurrency must be at least 1!");
+		
+		if (retries < 0)
+			throw new IllegalArgumentException("The amount of retries can't be negative!");
+		
+		this.retries = retries;
+		this.retryDelay = retryDelay;
+		
+		// Keep one idle connection around per worker, so consecutive ranges reuse the same connections.
+		client =
+				new OkHttpClient.Builder()
+						.connectionPool(new ConnectionPool(concurrency, 5, TimeUnit.MINUTES))
+						.connectTimeout(Duration.ofSeconds(10))
+						.readTimeout(Duration.ofMinutes(1))
+						.build();
+		
+		// The pool still has a fixed size on virtual threads, as it limits how hard we hit the feed.
+		// OkHttp synchronizes on its connections and calls, so these threads may still be pinned to their carrier while they wait on the network.
+		if (virtualThreads) {
+			
+			executor = Executors.newFixedThreadPool(concurrency, VirtualThreads.factory("Fetch Thread #"));
+			
+			return;
+		}
+		
+		AtomicInteger threadCount = new AtomicInteger();
+		
+		executor = Executors.newFixedThreadPool(concurrency, runnable -> {
+			
+			Thread thread = new Thread(runnable);
+			
+			thread.setName("Fetch Thread #" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			
+			return thread;
+		});
+	}
+	
+	/**
+	 * Fetches every range of the feed concurrently.
+	 *
+	 * @param baseUrl    The URL of the feed, the range is appended to it.
+	 * @param total      The total amount of items in the feed.
+	 * @param perRequest The amount of items to fetch per request.
+	 * @param parser     The parser used to turn a response into entries.
+	 * @return The entries of every range in feed order, and whether every range could be fetched.
+	 */
+	public Result fetchAll(String baseUrl, int total, int perRequest, FeedParser parser) {
+		
+		return fetchAll(baseUrl, total, perRequest, parser, null, null);
+	}
+	
+	/**
+	 * Fetches every range of the feed concurrently, only asking for the ranges that changed, and hands each range to a listener as soon as it is merged.
+	 * Only the IDs of a range are kept between fetches, the entries of an unchanged range are looked up in what the caller already has.
+	 *
+	 * @param known   Looks up an entry the caller already has by its ID, or null to always fetch every range in full.
+	 * @param onRange Receives the entries of each range in feed order, on the calling thread, or null.
+	 * @see #fetchAll(String, int, int, FeedParser)
+	 */
+	public Result fetchAll(String baseUrl, int total, int perRequest, FeedParser parser, Function<String, Entry> known, Consumer<List<Entry>> onRange) {
+		
+		ArrayList<Future<List<Entry>>> ranges = new ArrayList<>();
+		
+		for (int i = 1; i < total; i += perRequest) {
+			
+			final int from = i;
+			final int to = i + perRequest - 1;
+			
+			ranges.add(executor.submit(() -> fetch(baseUrl, from, to, parser, known)));
+		}
+		
+		// Merge the ranges in order, so the catalogue keeps the order of the feed no matter which range finished first.
+		ArrayList<Entry> entries = new ArrayList<>(total);
+		boolean complete = true;
+		
+		for (Future<List<Entry>> range : ranges) {
+			
+			try {
+				
+				List<Entry> rangeEntries = range.get();
+				
+				if (rangeEntries == null) {
+					
+					complete = false;
+					
+					continue;
+				}
+				
+				entries.addAll(rangeEntries);
+				
+				if (onRange != null) onRange.accept(rangeEntries);
+				
+			} catch (ExecutionException e) {
+				
+				LOGGER.error("Failed to fetch data from API!", e.getCause());
+				
+				complete = false;
+				
+			} catch (InterruptedException e) {
+				
+				// Don't leave the remaining ranges running in the background.
+				ranges.forEach(future -> future.cancel(true));
+				
+				Thread.currentThread().interrupt();
+				
+				return new Result(entries, false);
+			}
+		}
+		
+		return new Result(entries, complete);
+	}
+	
+	/**
+	 * Fetches a single range of the feed.
+	 *
+	 * @param baseUrl The URL of the feed, the range is appended to it.
+	 * @param from    The index of the first item to fetch.
+	 * @param to      The index of the last item to fetch.
+	 * @param parser  The parser used to turn the response into entries.
+	 * @param known   Looks up an entry the caller already has by its ID, or null to always fetch the range in full.
+	 * @return The entries in the range, or null if the range couldn't be fetched.
+	 */
+	public List<Entry> fetch(String baseUrl, int from, int to, FeedParser parser, Function<String, Entry> known) {
+		
+		LOGGER.info("Fetching item indicies from {} to {}...", from, to);
+		
+		final String range = from + "-" + to;
+		
+		for (int attempt = 1; ; attempt++) {
+			
+			final long startTime = System.nanoTime();
+			
+			try {
+				
+				return fetchOnce(baseUrl, from, to, parser, known, startTime);
+				
+			} catch (IOException e) {
+				
+				recordRange(range, "error", startTime);
+				
+				if (attempt > retries) {
+					
+					LOGGER.error("Failed to fetch data from API!", e);
+					
+					return null;
+				}
+				
+				// Back off exponentially, with some jitter so the ranges that failed together don't all retry at the same moment.
+				final long delay = retryDelay.toMillis() << (attempt - 1);
+				final long jitteredDelay = delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+				
+				LOGGER.warn("Failed to fetch item indicies from {} to {}, retrying in {}... ({})", from, to, Time.formatTime(jitteredDelay), e.toString());
+				
+				try {
+					
+					Thread.sleep(jitteredDelay);
+					
+				} catch (InterruptedException interrupted) {
+					
+					Thread.currentThread().interrupt();
+					
+					return null;
+				}
+				
+			} catch (Exception e) {
+				
+				LOGGER.error("Failed to fetch data from API!", e);
+				
+				recordRange(range, "error", startTime);
+				
+				return null;
+			}
+		}
+	}
+	
+	/**
+	 * Makes a single attempt at fetching a range.
+	 *
+	 * @return The entries in the range, or null if the API refused the request.
+	 * @throws IOException If the request failed in a way that is worth retrying, such as a network error or a server error.
+	 */
+	private List<Entry> fetchOnce(String baseUrl, int from, int to, FeedParser parser, Function<String, Entry> known, long startTime) throws Exception {
+		
+		final String range = from + "-" + to;
+		
+		final String url = baseUrl + String.format("&range=%d-%d", from, to);
+		
+		Request.Builder request =
+				new Request.Builder()
+						.addHeader("Accept-Encoding", "gzip")
+						.url(url);
+		
+		// Ask the API to only send the range if it changed since we last fetched it.
+		RangeState previous = known == null ? null : rangeStates.get(url);
+		
+		if (previous != null) {
+			
+			if (previous.etag() != null) request.addHeader("If-None-Match", previous.etag());
+			if (previous.lastModified() != null) request.addHeader("If-Modified-Since", previous.lastModified());
+		}
+		
+		try (Response response = client.newCall(request.build()).execute()) {
+			
+			if (response.code() == 304 && previous != null) {
+				
+				List<Entry> entries = previous.resolve(known);
+				
+				if (entries != null) {
+					
+					LOGGER.info("Item indicies from {} to {} are unchanged.", from, to);
+					
+					recordRange(range, "unchanged", startTime);
+					
+					return entries;
+				}
+				
+				// The caller no longer has every entry of the range, so fetch it again without the validators.
+				LOGGER.info("Item indicies from {} to {} are unchanged, but not every entry is known, fetching them again...", from, to);
+				
+				rangeStates.remove(url);
+				
+				return fetchOnce(baseUrl, from, to, parser, known, startTime);
+			}
+			
+			// Server errors and rate limiting are usually temporary.
+			if (response.code() >= 500 || response.code() == 429)
+				throw new IOException("The API responded with status code " + response.code() + "!");
+			
+			if (response.code() != 200) {
+				
+				LOGGER.error("Failed to fetch data from API! (Status Code: {})", response.code());
+				
+				recordRange(range, "error", startTime);
+				
+				return null;
+			}
+			
+			CountingInputStream counted = new CountingInputStream(response.body().byteStream());
+			InputStream body = counted;
+			
+			// The response is usually compressed with GZIP, so we need to decompress it.
+			if ("gzip".equalsIgnoreCase(response.header("Content-Encoding")))
+				body = new GZIPInputStream(body);
+			
+			List<Entry> entries;
+			
+			// Decode the body as a character stream, so multibyte characters are never split between two reads.
+			try (Reader reader = new InputStreamReader(body, StandardCharsets.UTF_8)) {
+				
+				entries = parser.parse(reader);
+			}
+			
+			String etag = response.header("ETag");
+			String lastModified = response.header("Last-Modified");
+			
+			if (known != null && (etag != null || lastModified != null))
+				rangeStates.put(url, RangeState.of(etag, lastModified, entries));
+			else
+				rangeStates.remove(url);
+			
+			recordRange(range, "success", startTime);
+			
+			DistributionSummary.builder("wexo.feed.range.bytes")
+					.description("The size of a feed range as it was sent over the wire")
+					.baseUnit("bytes")
+					.tag("range", range)
+					.register(Metrics.globalRegistry)
+					.record(counted.count);
+			
+			DistributionSummary.builder("wexo.feed.range.entries")
+					.description("The amount of entries in a feed range")
+					.tag("range", range)
+					.register(Metrics.globalRegistry)
+					.record(entries.size());
+			
+			return entries;
+		}
+	}
+	
+	private static void recordRange(String range, String outcome, long startTime) {
+		
+		Timer.builder("wexo.feed.range")
+				.description("The time it takes to fetch and parse a feed range")
+				.tag("range", range)
+				.tag("outcome", outcome)
+				.register(Metrics.globalRegistry)
+				.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+	}
+	
+	public void shutdown() {
+		
+		executor.shutdownNow();
+		
+		client.dispatcher().executorService().shutdown();
+		client.connectionPool().evictAll();
+	}
+	
+	/**
+	 * The outcome of fetching every range of the feed.
+	 *
+	 * @param entries  The entries of every range that could be fetched, in feed order.
+	 * @param complete Whether every range could be fetched.
+	 */
+	public record Result(List<Entry> entries, boolean complete) {
+	}
+	
+	/**
+	 * Counts the bytes read through it, before they are decompressed.
+	 */
+	private static final class CountingInputStream extends FilterInputStream {
+		
+		private long count = 0;
+		
+		CountingInputStream(InputStream input) {
+			
+			super(input);
+		}
+		
+		@Override
+		public int read() throws IOException {
+			
+			final int read = super.read();
+			
+			if (read >= 0) count++;
+			
+			return read;
+		}
+		
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			
+			final int read = super.read(buffer, offset, length);
+			
+			if (read > 0) count += read;
+			
+			return read;
+		}
+	}
+	
+	/**
+	 * The validators of the last response for a range, and the IDs of the entries it contained.
+	 * The IDs are the same strings as in the entries, so this costs a reference per entry rather than a copy of the range.
+	 */
+	private record RangeState(String etag, String lastModified, String[] ids) {
+		
+		static RangeState of(String etag, String lastModified, List<Entry> entries) {
+			
+			String[] ids = new String[entries.size()];
+			
+			for (int i = 0; i < ids.length; i++)
+				ids[i] = entries.get(i).getId();
+			
+			return new RangeState(etag, lastModified, ids);
+		}
+		
+		/**
+		 * Looks the entries of the range up by their IDs.
+		 *
+		 * @return The entries, or null if any of them is missing.
+		 */
+		List<Entry> resolve(Function<String, Entry> known) {
+			
+			ArrayList<Entry> entries = new ArrayList<>(ids.length);
+			
+			for (String id : ids) {
+				
+				Entry entry = known.apply(id);
+				
+				if (entry == null) return null;
+				
+				entries.add(entry);
+			}
+			
+			return entries;
+		}
+	}
+	
+	@FunctionalInterface
+	public interface FeedParser {
+		
+		List<Entry> parse(Reader reader) throws Exception;
+	}
+}
@@ -0,0 +1,186 @@
+package me.casper.wexo.api;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * The image variants of an entry, stored as parallel arrays of URLs and dimensions.
+ * The map view (URL -> [Width, Height]) is for the templates, as it creates its values on the fly.
+ */
+public final class ImageSet extends AbstractMap<String, List<Integer>> {
+	
+	public static final ImageSet EMPTY = new ImageSet(new String[0], new int[0], new int[0]);
+	
+	private final String[] urls;
+	private final int[] widths;
+	private final int[] heights;
+	
+	private ImageSet(String[] urls, int[] widths, int[] heights) {
+		
+		this.urls = urls;
+		this.widths = widths;
+		this.heights = heights;
+	}
+	
+	public static Builder builder() {
+		
+		return new Builder();
+	}
+	
+	public String getUrl(int index) {
+		
+		return urls[index];
+	}
+	
+	public int getWidth(int index) {
+		
+		return widths[index];
+	}
+	
+	public int getHeight(int index) {
+		
+		return heights[index];
+	}
+	
+	/**
+	 * Hashes the images without going through the map view.
+	 *
+	 * @return A hash of every URL and its dimensions.
+	 */
+	public long contentHash() {
+		
+		long hash = 17;
+		
+		for (int i = 0; i < urls.length; i++) {
+			
+			hash = hash * 1_000_003 + urls[i].hashCode();
+			hash = hash * 1_000_003 + widths[i];
+			hash = hash * 1_000_003 + heights[i];
+		}
+		
+		return hash;
+	}
+	
+	@Override
+	public int size() {
+		
+		return urls.length;
+	}
+	
+	@Override
+	public boolean containsKey(Object key) {
+		
+		return indexOf(key) >= 0;
+	}
+	
+	@Override
+	public List<Integer> get(Object key) {
+		
+		final int index = indexOf(key);
+		
+		return index < 0 ? null : List.of(widths[index], heights[index]);
+	}
+	
+	@Override
+	public Set<Map.Entry<String, List<Integer>>> entrySet() {
+		
+		return new AbstractSet<>() {
+			
+			@Override
+			public Iterator<Map.Entry<String, List<Integer>>> iterator() {
+				
+				return new Iterator<>() {
+					
+					private int index = 0;
+					
+					@Override
+					public boolean hasNext() {
+						
+						return index < urls.length;
+					}
+					
+					@Override
+					public Map.Entry<String, List<Integer>> next() {
+						
+						if (!hasNext()) throw new NoSuchElementException();
+						
+						final int current = index++;
+						
+						return new SimpleImmutableEntry<>(urls[current], List.of(widths[current], heights[current]));
+					}
+				};
+			}
+			
+			@Override
+			public int size() {
+				
+				return urls.length;
+			}
+		};
+	}
+	
+	private int indexOf(Object url) {
+		
+		for (int i = 0; i < urls.length; i++) {
+			
+			if (urls[i].equals(url)) return i;
+		}
+		
+		return -1;
+	}
+	
+	public static final class Builder {
+		
+		private final ArrayList<String> urls = new ArrayList<>();
+		private int[] widths = new int[4];
+		private int[] heights = new int[4];
+		
+		private Builder() {
+		}
+		
+		/**
+		 * Adds an image, replacing the dimensions of the image if it has already been added.
+		 *
+		 * @param url    The URL of the image.
+		 * @param width  The width of the image.
+		 * @param height The height of the image.
+		 * @return This builder.
+		 */
+		public Builder add(String url, int width, int height) {
+			
+			int index = urls.indexOf(url);
+			
+			if (index < 0) {
+				
+				index = urls.size();
+				
+				urls.add(url);
+				
+				if (index == widths.length) {
+					
+					widths = Arrays.copyOf(widths, index * 2);
+					heights = Arrays.copyOf(heights, index * 2);
+				}
+			}
+			
+			widths[index] = width;
+			heights[index] = height;
+			
+			return this;
+		}
+		
+		public ImageSet build() {
+			
+			if (urls.isEmpty()) return EMPTY;
+			
+			return new ImageSet(urls.toArray(new String[0]), Arrays.copyOf(widths, urls.size()), Arrays.copyOf(heights, urls.size()));
+		}
+	}
+}
@@ -0,0 +1,183 @@
+package me.casper.wexo.api;
+
+import java.util.Arrays;
+
+/**
+ * The images chosen for each place an entry is shown, picked once when the entry is ingested so rendering a page is a couple of field reads.
+ * Aspect ratios are compared exactly, and each slot gets the smallest image that still covers its width, with the rest of the same shape as a srcset.
+ */
+public final class ImageVariants {
+	
+	public static final ImageVariants EMPTY = new ImageVariants(null, null, null, null, null, null);
+	
+	// The widest each slot is shown on the site, in CSS pixels.
+	static final int COVER_WIDTH = 250;
+	static final int TILE_WIDTH = 640;
+	static final int HERO_WIDTH = 1920;
+	
+	private final String cover; // Grid cover, a portrait image.
+	private final String coverSrcset;
+	
+	private final String tile; // Genre tile, a 16:9 backdrop, or null if the entry doesn't have one.
+	private final String tileSrcset;
+	
+	private final String hero; // Full screen backdrop on the entry page, 16:9 if there is one.
+	private final String heroSrcset;
+	
+	private ImageVariants(String cover, String coverSrcset, String tile, String tileSrcset, String hero, String heroSrcset) {
+		
+		this.cover = cover;
+		this.coverSrcset = coverSrcset;
+		this.tile = tile;
+		this.tileSrcset = tileSrcset;
+		this.hero = hero;
+		this.heroSrcset = heroSrcset;
+	}
+	
+	/**
+	 * Picks the images for every slot.
+	 *
+	 * @param covers    The covers of the entry.
+	 * @param backdrops The backdrops of the entry.
+	 * @return The chosen images.
+	 */
+	public static ImageVariants of(ImageSet covers, ImageSet backdrops) {
+		
+		if (covers.isEmpty() && backdrops.isEmpty()) return EMPTY;
+		
+		// Covers come in a few portrait shapes, so use the shape of the largest portrait cover for the whole srcset.
+		int[] portrait = shape(covers, widest(covers, true));
+		int[] widescreen = shape(backdrops, 16, 9);
+		
+		// Fall back to any backdrop for the entry page, but a genre tile has to line up with the others.
+		int[] hero = widescreen.length > 0 ? widescreen : shape(backdrops, widest(backdrops, false));
+		
+		return new ImageVariants(
+				pick(covers, portrait, COVER_WIDTH), srcset(covers, portrait),
+				pick(backdrops, widescreen, TILE_WIDTH), srcset(backdrops, widescreen),
+				pick(backdrops, hero, HERO_WIDTH), srcset(backdrops, hero)
+		);
+	}
+	
+	public String getCover() {
+		
+		return cover;
+	}
+	
+	public String getCoverSrcset() {
+		
+		return coverSrcset;
+	}
+	
+	public String getTile() {
+		
+		return tile;
+	}
+	
+	public String getTileSrcset() {
+		
+		return tileSrcset;
+	}
+	
+	public String getHero() {
+		
+		return hero;
+	}
+	
+	public String getHeroSrcset() {
+		
+		return heroSrcset;
+	}
+	
+	/**
+	 * Finds the widest image, preferring portrait images or not, but falling back to any image.
+	 */
+	private static int widest(ImageSet images, boolean portrait) {
+		
+		int best = -1;
+		
+		for (int i = 0; i < images.size(); i++) {
+			
+			if (images.getWidth(i) <= 0 || images.getHeight(i) <= 0) continue;
+			
+			final boolean preferred = (images.getHeight(i) > images.getWidth(i)) == portrait;
+			final boolean bestPreferred = best >= 0 && (images.getHeight(best) > images.getWidth(best)) == portrait;
+			
+			if (best < 0 || preferred && !bestPreferred || preferred == bestPreferred && images.getWidth(i) > images.getWidth(best))
+				best = i;
+		}
+		
+		return best;
+	}
+	
+	private static int[] shape(ImageSet images, int index) {
+		
+		return index < 0 ? new int[0] : shape(images, images.getWidth(index), images.getHeight(index));
+	}
+	
+	/**
+	 * Finds the images with exactly the given aspect ratio, from narrowest to widest, keeping one image per width.
+	 */
+	private static int[] shape(ImageSet images, int width, int height) {
+		
+		int[] matches = new int[images.size()];
+		int count = 0;
+		
+		for (int i = 0; i < images.size(); i++) {
+			
+			// Cross multiply, so 1280x720 and 1920x1080 are the same shape but 2048x1536 isn't.
+			if (images.getWidth(i) <= 0 || (long) images.getWidth(i) * height != (long) images.getHeight(i) * width) continue;
+			
+			matches[count++] = i;
+		}
+		
+		Integer[] sorted = new Integer[count];
+		
+		for (int i = 0; i < count; i++)
+			sorted[i] = matches[i];
+		
+		Arrays.sort(sorted, (a, b) -> Integer.compare(images.getWidth(a), images.getWidth(b)));
+		
+		int unique = 0;
+		
+		for (int i = 0; i < count; i++) {
+			
+			if (unique > 0 && images.getWidth(matches[unique - 1]) == images.getWidth(sorted[i])) continue;
+			
+			matches[unique++] = sorted[i];
+		}
+		
+		return Arrays.copyOf(matches, unique);
+	}
+	
+	/**
+	 * Picks the narrowest image that is at least as wide as the slot, or the widest image if none are.
+	 */
+	private static String pick(ImageSet images, int[] shape, int width) {
+		
+		if (shape.length == 0) return null;
+		
+		for (int index : shape) {
+			
+			if (images.getWidth(index) >= width) return images.getUrl(index);
+		}
+		
+		return images.getUrl(shape[shape.length - 1]);
+	}
+	
+	private static String srcset(ImageSet images, int[] shape) {
+		
+		if (shape.length == 0) return null;
+		
+		StringBuilder srcset = new StringBuilder();
+		
+		for (int index : shape) {
+			
+			if (srcset.length() > 0) srcset.append(", ");
+			
+			srcset.append(images.getUrl(index)).append(' ').append(images.getWidth(index)).append('w');
+		}
+		
+		return srcset.toString();
+	}
+}
@@ -1,18 +1,39 @@
 package me.casper.wexo.api;
 
 import com.google.gson.*;
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.Response;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import me.casper.util.Time;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
-import java.time.Duration;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.zip.GZIPInputStream;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 import static me.casper.wexo.WEXOApplication.LOGGER;
 
@@ -23,286 +44,694 @@ public class REST {
 	
 	public static final String BASE_URL = "https://feed.entertainment.tv.theplatform.eu/f/jGxigC/bb-all-pas?form=json&lang=da";
 	
-	private final ArrayList<Entry> activeCache = new ArrayList<>();
-	private final ArrayList<Entry> fallbackCache = new ArrayList<>();
+	// The catalogue served to requests, it is never modified and only ever replaced as a whole.
+	private volatile Catalogue catalogue = Catalogue.EMPTY;
+	
+	// The next catalogue, this is only touched by the update thread until it gets published.
+	private final ArrayList<Entry> pendingCache = new ArrayList<>();
+	private final HashSet<String> pendingIds = new HashSet<>();
+	
 	private final File cacheFile;
-	private long lastUpdated = 0;
+	private final File snapshotFile;
+	private final FetchEngine fetchEngine;
+	private final String baseUrl;
+	private final int totalItems;
+	private volatile long lastUpdated = 0;
+	private long pendingModified = 0; // The time the content of the pending cache last changed.
+	private volatile long lastRefreshed = 0; // The last time every range of the feed was fetched.
+	private volatile boolean partial = false; // Whether the catalogue is still missing ranges of the feed, as it was started without a cache.
 	
-	public REST(String cachePath) {
+	private final Counter rejectedFeedEntries = rejectedEntries("feed");
+	private final Counter rejectedCacheEntries = rejectedEntries("cache");
+	
+	public REST(String cachePath, int fetchConcurrency) {
 		
-		cacheFile = new File(cachePath);
+		this(cachePath, new FetchEngine(fetchConcurrency));
+	}
+	
+	public REST(String cachePath, FetchEngine fetchEngine) {
 		
-		try {
+		this(cachePath, fetchEngine, BASE_URL, TOTAL_ITEMS);
+	}
+	
+	/**
+	 * @param cachePath   The path of the JSON cache, the binary snapshot is kept next to it.
+	 * @param fetchEngine The engine used to fetch the feed.
+	 * @param baseUrl     The URL of the feed, including a query string the range is appended to.
+	 * @param totalItems  The amount of entries to fetch from the feed.
+	 */
+	public REST(String cachePath, FetchEngine fetchEngine, String baseUrl, int totalItems) {
+		
+		this.cacheFile = new File(cachePath);
+		this.snapshotFile = new File(cachePath + ".bin");
+		this.fetchEngine = fetchEngine;
+		this.baseUrl = baseUrl;
+		this.totalItems = totalItems;
+		
+		Gauge.builder("wexo.catalogue.size", this, rest -> rest.getCatalogue().size())
+				.description("The amount of entries in the served catalogue")
+				.register(Metrics.globalRegistry);
+		
+		Gauge.builder("wexo.catalogue.age", this, rest -> (System.currentTimeMillis() - rest.lastRefreshed) / 1000.0)
+				.description("The time since every range of the feed was last fetched, or since the cache on disk was written")
+				.baseUnit("seconds")
+				.register(Metrics.globalRegistry);
+	}
+	
+	/**
+	 * Loads the cache from disk and publishes it as the first catalogue we serve. This should be called once, before the first refresh.
+	 *
+	 * @throws IOException If the cache couldn't be read or created, the catalogue stays empty and the cache is fetched from the feed instead.
+	 */
+	public void load() throws IOException {
+		
+		// If the cache file doesn't exist, create it.
+		if (!cacheFile.exists()) {
 			
-			// If the cache file doesn't exist, create it.
-			if (!cacheFile.exists()) {
-				
-				LOGGER.warn("Cache file doesn't exist, creating it...");
-				
-				// Make sure the parent directories exist.
-				cacheFile.getParentFile().mkdirs();
-				
-				if (!cacheFile.createNewFile()) {
-					
-					LOGGER.error("Failed to create cache file, exiting...");
-					
-					System.exit(1);
-				}
-			}
+			LOGGER.warn("Cache file doesn't exist, creating it...");
 			
-			// Parse the fallback data into the fallback cache.
-			LOGGER.info("Loading fallback cache data...");
+			// Make sure the parent directories exist.
+			cacheFile.getAbsoluteFile().getParentFile().mkdirs();
 			
-			Gson gson = new Gson();
+			if (!cacheFile.createNewFile())
+				throw new IOException("Failed to create cache file!");
+		}
+		
+		try {
 			
-			String data = new String(Files.readAllBytes(cacheFile.toPath()));
+			// Prefer the binary snapshot, and only parse the JSON cache if the snapshot is missing or broken.
+			if (!loadSnapshot())
+				loadCache();
 			
-			if (data.isEmpty()) {
-				
-				LOGGER.warn("Cache data is empty, awaiting API response...");
-				
-				return;
-			}
+		} catch (IOException | RuntimeException e) {
 			
-			JsonObject wrapper = gson.fromJson(data, JsonObject.class);
+			pendingCache.clear();
+			pendingIds.clear();
+			
+			throw new IOException("Failed to parse cache data from disk!", e);
+		}
+		
+		// The fallback data becomes the first catalogue we serve.
+		publish();
+	}
+	
+	/**
+	 * Fetches every range of the feed, and applies the changes to the pending cache.
+	 * Entries are only removed if every range could be fetched.
+	 *
+	 * @return The changes that were applied.
+	 */
+	public Delta fetchAll() {
+		
+		// Without a cache, every range is published as soon as it is in, instead of waiting for the whole feed.
+		final boolean cold = pendingCache.isEmpty();
+		
+		if (cold) partial = true;
+		
+		// An unchanged range is made up of entries we already have, the fetch threads only read this map.
+		HashMap<String, Entry> known = new HashMap<>();
+		
+		for (Entry entry : pendingCache)
+			known.putIfAbsent(entry.getId(), entry);
+		
+		FetchEngine.Result result = fetchEngine.fetchAll(baseUrl, totalItems, MAX_ITEMS_PER_REQUEST, this::parseEntries, known::get, cold ? this::publishRange : null);
+		
+		if (result.complete()) lastRefreshed = System.currentTimeMillis();
+		
+		// An empty feed is far more likely to be an API error than an empty catalogue, so don't delete anything.
+		final boolean complete = result.complete() && !result.entries().isEmpty();
+		
+		if (complete) partial = false;
+		
+		// Every range has already been staged and published as it came in.
+		if (cold) return new Delta(pendingCache.size(), 0, 0, complete);
+		
+		LinkedHashMap<String, Entry> fetched = new LinkedHashMap<>();
+		
+		for (Entry entry : result.entries())
+			fetched.putIfAbsent(entry.getId(), entry);
+		
+		ArrayList<Entry> next = new ArrayList<>(Math.max(pendingCache.size(), fetched.size()));
+		
+		int updated = 0;
+		int deleted = 0;
+		
+		for (Entry entry : pendingCache) {
 			
-			JsonPrimitive lastUpdated = wrapper.getAsJsonPrimitive("lastUpdated");
-			JsonArray entries = wrapper.getAsJsonArray("entries");
+			Entry fresh = fetched.remove(entry.getId());
 			
-			for (int i = 0; i < entries.size(); i++) {
+			if (fresh == null) {
 				
-				JsonElement rawEntry = entries.get(i);
+				if (complete) deleted++;
+				else next.add(entry);
 				
-				if (rawEntry == null || rawEntry.isJsonNull())
-					continue;
+				continue;
+			}
+			
+			// Keep the entry we already have if nothing changed, so unchanged entries stay shared between catalogues.
+			if (fresh.getContentHash() != entry.getContentHash()) {
 				
-				JsonObject entryObject = rawEntry.getAsJsonObject();
+				next.add(fresh);
 				
-				Entry entry = defineCachedEntry(entryObject);
+				updated++;
 				
-				if (entry == null) continue;
+			} else {
 				
-				fallbackCache.add(entry);
+				next.add(entry);
 			}
+		}
+		
+		// Whatever is left hasn't been seen before.
+		next.addAll(fetched.values());
+		
+		Delta delta = new Delta(fetched.size(), updated, deleted, complete);
+		
+		if (delta.isEmpty()) return delta;
+		
+		pendingModified = System.currentTimeMillis();
+		
+		pendingCache.clear();
+		pendingIds.clear();
+		
+		for (Entry entry : next)
+			stage(entry);
+		
+		return delta;
+	}
+	
+	/**
+	 * Replaces the pending cache with the catalogue of another instance, in its order, so both serve the same catalogue version.
+	 * Entries that didn't change are kept, so they stay shared between catalogues.
+	 *
+	 * @param entries      The entries of the other instance.
+	 * @param lastModified The time the other instance's catalogue last changed.
+	 * @return The changes that were applied.
+	 */
+	public Delta replace(List<Entry> entries, long lastModified) {
+		
+		HashMap<String, Entry> previous = new HashMap<>();
+		
+		for (Entry entry : pendingCache)
+			previous.put(entry.getId(), entry);
+		
+		ArrayList<Entry> next = new ArrayList<>(entries.size());
+		
+		int inserted = 0;
+		int updated = 0;
+		
+		for (Entry entry : entries) {
 			
-			this.lastUpdated = lastUpdated.getAsLong();
-			
-		} catch (Exception e) {
+			Entry known = previous.remove(entry.getId());
 			
-			LOGGER.error("Failed to parse cache data from disk, exiting...", e);
+			if (known == null) inserted++;
+			else if (known.getContentHash() != entry.getContentHash()) updated++;
 			
-			System.exit(1);
+			next.add(known != null && known.getContentHash() == entry.getContentHash() ? known : entry);
 		}
 		
-		// Copy the fallback cache into the active cache.
-		activeCache.addAll(fallbackCache);
+		pendingCache.clear();
+		pendingIds.clear();
+		
+		for (Entry entry : next)
+			stage(entry);
+		
+		pendingModified = lastModified;
+		lastRefreshed = System.currentTimeMillis();
+		partial = false;
+		
+		return new Delta(inserted, updated, previous.size(), true);
 	}
 	
-	public void fetch(int from, int to) {
-		
-		final String range = String.format("&range=%d-%d", from, to);
+	/**
+	 * Writes the pending cache to disk, both as JSON and as a binary snapshot. This should be called once per completed refresh.
+	 */
+	public void write() {
 		
-		OkHttpClient client =
-				new OkHttpClient.Builder()
-						.connectTimeout(Duration.ofSeconds(10))
-						.readTimeout(Duration.ofMinutes(1))
-						.build();
+		// If the pending cache is empty, don't write anything.
+		if (pendingCache.isEmpty()) return;
 		
-		Request request =
-				new Request.Builder()
-						.addHeader("Accept-Encoding", "gzip")
-						.url(BASE_URL + range)
-						.build();
+		final long now = System.currentTimeMillis();
 		
-		try (Response response = client.newCall(request).execute()) {
+		try {
 			
-			if (response.code() != 200) {
+			writeAtomically(cacheFile.toPath(), "json", output -> {
 				
-				LOGGER.error("Failed to fetch data from API! (Status Code: {})", response.code());
+				JsonWriter writer = new JsonWriter(new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8)));
 				
-				return;
-			}
+				writer.beginObject();
+				writer.name("lastUpdated").value(now);
+				writer.name("entries").beginArray();
+				
+				for (Entry entry : pendingCache)
+					writeEntry(writer, entry);
+				
+				writer.endArray();
+				writer.endObject();
+				writer.flush();
+			});
 			
-			// The response is compressed with GZIP, so we need to decompress it.
-			StringBuilder data = new StringBuilder();
+			lastUpdated = now;
 			
-			GZIPInputStream inputStream = new GZIPInputStream(response.body().byteStream());
+		} catch (IOException e) {
 			
-			byte[] buffer = new byte[1024];
-			int length;
-			while ((length = inputStream.read(buffer)) != -1) {
-				
-				data.append(new String(buffer, 0, length));
-			}
+			LOGGER.error("Failed to write cache to disk!", e);
+			
+			return;
+		}
+		
+		try {
 			
-			inputStream.close();
+			writeAtomically(snapshotFile.toPath(), "snapshot", output -> CatalogueSnapshot.write(output, now, pendingCache));
 			
-			JsonArray entries = new Gson().fromJson(data.toString(), JsonObject.class).getAsJsonArray("entries");
+		} catch (IOException e) {
 			
-			if (entries == null || entries.isEmpty()) {
+			LOGGER.error("Failed to write cache snapshot to disk!", e);
+			
+			// An outdated snapshot would be loaded instead of the JSON cache, so get rid of it.
+			if (!snapshotFile.delete() && snapshotFile.exists())
+				LOGGER.error("Failed to delete the outdated cache snapshot!");
+		}
+	}
+	
+	/**
+	 * Swaps the pending cache in as the catalogue served to requests, and rebuilds its indexes.
+	 * Requests that are already running keep using the catalogue they started with.
+	 */
+	public void publish() {
+		
+		catalogue = new Catalogue(pendingCache, pendingModified);
+	}
+	
+	/**
+	 * Stages and publishes a single range of the feed, while the catalogue is being built from scratch.
+	 */
+	private void publishRange(List<Entry> entries) {
+		
+		for (Entry entry : entries)
+			stage(entry);
+		
+		pendingModified = System.currentTimeMillis();
+		
+		publish();
+		
+		LOGGER.info("Published {} entries so far.", pendingCache.size());
+	}
+	
+	/**
+	 * Stops the fetch threads and closes the connections to the API.
+	 */
+	public void shutdown() {
+		
+		fetchEngine.shutdown();
+	}
+	
+	public Catalogue getCatalogue() {
+		
+		return catalogue;
+	}
+	
+	public Entry getEntry(String id) {
+		
+		return catalogue.getEntry(id);
+	}
+	
+	public List<Entry> getActiveCache() {
+		
+		return catalogue.getEntries();
+	}
+	
+	public ArrayList<Entry> getActiveCache(int from, int to, String genre, String type) {
+		
+		return catalogue.filter(from, to, genre, type);
+	}
+	
+	public boolean isPartial() {
+		
+		return partial;
+	}
+	
+	public long getLastUpdated() {
+		
+		return lastUpdated;
+	}
+	
+	public File getCacheFile() {
+		
+		return cacheFile;
+	}
+	
+	/**
+	 * Parses the entries of an API response as they are read, so only a single entry is held as a JSON tree at a time.
+	 *
+	 * @param data The body of the response.
+	 * @return The entries that could be parsed.
+	 */
+	List<Entry> parseEntries(Reader data) throws IOException {
+		
+		ArrayList<Entry> parsed = new ArrayList<>(MAX_ITEMS_PER_REQUEST);
+		
+		JsonReader reader = new JsonReader(data);
+		
+		reader.beginObject();
+		
+		while (reader.hasNext()) {
+			
+			// Skip everything that isn't the entries, such as the paging information.
+			if (!reader.nextName().equals("entries") || reader.peek() != JsonToken.BEGIN_ARRAY) {
 				
-				LOGGER.error("Failed to fetch data from API! (No Entries Found)");
+				reader.skipValue();
 				
-				return;
+				continue;
 			}
 			
-			for (int i = 0; i < entries.size(); i++) {
+			reader.beginArray();
+			
+			while (reader.hasNext()) {
+				
+				JsonElement rawEntry = JsonParser.parseReader(reader);
 				
-				JsonObject entryObject = entries.get(i).getAsJsonObject();
+				if (!rawEntry.isJsonObject()) continue;
 				
-				Entry entry = defineEntry(entryObject);
+				Entry entry = defineEntry(rawEntry.getAsJsonObject());
 				
-				if (entry == null || activeCache.contains(entry))
+				if (entry == null) {
+					
+					rejectedFeedEntries.increment();
+					
 					continue;
+				}
 				
-				activeCache.add(entry);
+				parsed.add(entry);
 			}
 			
-		} catch (Exception e) {
+			reader.endArray();
+		}
+		
+		reader.endObject();
+		
+		if (parsed.isEmpty())
+			LOGGER.error("Failed to fetch data from API! (No Entries Found)");
+		
+		return parsed;
+	}
+	
+	/**
+	 * The changes a refresh made to the catalogue.
+	 *
+	 * @param inserted The amount of entries that were added.
+	 * @param updated  The amount of entries whose content changed.
+	 * @param deleted  The amount of entries that were removed.
+	 * @param complete Whether every range of the feed could be fetched.
+	 */
+	public record Delta(int inserted, int updated, int deleted, boolean complete) {
+		
+		public boolean isEmpty() {
+			
+			return inserted == 0 && updated == 0 && deleted == 0;
+		}
+	}
+	
+	@FunctionalInterface
+	private interface CacheWriter {
+		
+		void write(OutputStream output) throws IOException;
+	}
+	
+	/**
+	 * Loads the binary cache snapshot into the pending cache.
+	 *
+	 * @return Whether the snapshot could be loaded.
+	 */
+	private boolean loadSnapshot() {
+		
+		if (!snapshotFile.isFile()) return false;
+		
+		LOGGER.info("Loading fallback cache snapshot...");
+		
+		final long startTime = System.currentTimeMillis();
+		
+		try {
+			
+			CatalogueSnapshot snapshot = CatalogueSnapshot.read(snapshotFile.toPath());
+			
+			for (Entry entry : snapshot.getEntries())
+				stage(entry);
+			
+			lastUpdated = snapshot.getLastUpdated();
+			pendingModified = lastUpdated;
+			lastRefreshed = lastUpdated;
+			
+			recordLoad("snapshot", snapshotFile, startTime);
+			
+			LOGGER.info("Loaded {} entries from the cache snapshot in {}!", pendingCache.size(), Time.formatTime(System.currentTimeMillis() - startTime));
 			
-			LOGGER.error("Failed to fetch data from API!", e);
+			return true;
+			
+		} catch (IOException e) {
+			
+			LOGGER.warn("Failed to load the cache snapshot, falling back to the JSON cache...", e);
+			
+			pendingCache.clear();
+			pendingIds.clear();
+			
+			return false;
 		}
 	}
 	
-	public void write() {
+	/**
+	 * Loads the JSON cache into the pending cache.
+	 */
+	private void loadCache() throws IOException {
+		
+		// Parse the fallback data into the pending cache.
+		LOGGER.info("Loading fallback cache data...");
 		
-		// If the active cache is empty, don't write anything.
-		if (activeCache.isEmpty()) return;
+		final long startTime = System.currentTimeMillis();
 		
-		// Write the active cache to disk.
 		Gson gson = new Gson();
 		
-		JsonElement tree = gson.toJsonTree(activeCache);
+		String data = new String(Files.readAllBytes(cacheFile.toPath()), StandardCharsets.UTF_8);
 		
-		if (tree == null || tree.isJsonNull())
+		if (data.isEmpty()) {
+			
+			LOGGER.warn("Cache data is empty, awaiting API response...");
+			
 			return;
+		}
 		
-		final long now = System.currentTimeMillis();
-		
-		JsonObject wrapper = new JsonObject();
+		JsonObject wrapper = gson.fromJson(data, JsonObject.class);
 		
-		wrapper.add("lastUpdated", new JsonPrimitive(now));
-		wrapper.add("entries", tree);
+		JsonPrimitive lastUpdated = wrapper.getAsJsonPrimitive("lastUpdated");
+		JsonArray entries = wrapper.getAsJsonArray("entries");
 		
-		try {
+		for (int i = 0; i < entries.size(); i++) {
 			
-			Files.write(cacheFile.toPath(), gson.toJson(wrapper).getBytes());
+			JsonElement rawEntry = entries.get(i);
 			
-			lastUpdated = now;
+			if (rawEntry == null || rawEntry.isJsonNull())
+				continue;
+			
+			JsonObject entryObject = rawEntry.getAsJsonObject();
 			
-			// Copy the active cache into the fallback cache.
-			for (Entry entry : activeCache) {
+			Entry entry = defineCachedEntry(entryObject);
+			
+			if (entry == null) {
 				
-				if (fallbackCache.contains(entry)) continue;
+				rejectedCacheEntries.increment();
 				
-				fallbackCache.add(entry);
+				continue;
 			}
 			
-		} catch (IOException e) {
-			
-			LOGGER.error("Failed to write cache to disk!", e);
+			stage(entry);
 		}
+		
+		this.lastUpdated = lastUpdated.getAsLong();
+		this.pendingModified = this.lastUpdated;
+		this.lastRefreshed = this.lastUpdated;
+		
+		recordLoad("json", cacheFile, startTime);
 	}
 	
-	public Entry getEntry(String id) {
+	private static Counter rejectedEntries(String source) {
 		
-		for (Entry entry : activeCache) {
-			
-			if (entry.getId().equals(id)) return entry;
-		}
+		return Counter.builder("wexo.entries.rejected")
+				.description("The amount of entries that were skipped because they were missing required data")
+				.tag("source", source)
+				.register(Metrics.globalRegistry);
+	}
+	
+	private static DistributionSummary cacheSize(String name, String kind) {
 		
-		return null;
+		return DistributionSummary.builder(name)
+				.description("The size of the cache on disk")
+				.baseUnit("bytes")
+				.tag("file", kind)
+				.register(Metrics.globalRegistry);
 	}
 	
-	public ArrayList<Entry> getActiveCache() {
+	private static void recordLoad(String kind, File file, long startTime) {
+		
+		Timer.builder("wexo.cache.load")
+				.description("The time it took to load the cache from disk on startup")
+				.tag("file", kind)
+				.register(Metrics.globalRegistry)
+				.record(System.currentTimeMillis() - startTime, TimeUnit.MILLISECONDS);
 		
-		return activeCache;
+		cacheSize("wexo.cache.load.size", kind).record(file.length());
 	}
 	
-	public ArrayList<Entry> getActiveCache(int from, int to, String genre, String type) {
+	/**
+	 * Writes a file by streaming it into a temporary file next to it, and then moving that over the file,
+	 * so a crash halfway through a write never leaves a broken cache behind.
+	 *
+	 * @param target  The file to write.
+	 * @param kind    The kind of file, which the write is recorded under.
+	 * @param content Writes the content of the file, the stream is closed afterwards.
+	 */
+	private void writeAtomically(Path target, String kind, CacheWriter content) throws IOException {
 		
-		// Make sure the range is valid.
-		if (from < 0 || to < 0 || from > to)
-			return null;
+		final long startTime = System.nanoTime();
 		
-		// Make sure the range is within the cache.
-		to = Math.min(to, activeCache.size());
+		target = target.toAbsolutePath();
 		
-		ArrayList<Entry> filteredCache = new ArrayList<>();
+		// Not Files.createTempFile, as the file would only be readable by its owner once it has replaced the target.
+		Path temporary = target.resolveSibling(target.getFileName() + "." + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
 		
-		// If the genre and the type are both "all", just return the range.
-		if (genre.equalsIgnoreCase("all") && type.equalsIgnoreCase("all")) {
+		try {
 			
-			for (int i = from; i < to; i++) {
+			try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
 				
-				filteredCache.add(activeCache.get(i));
-			}
-			
-			return filteredCache;
-		}
-		
-		// If the genre is "all", filter by the type.
-		if (genre.equalsIgnoreCase("all")) {
-			
-			for (int i = from; i < to; i++) {
+				OutputStream output = new BufferedOutputStream(Channels.newOutputStream(channel));
 				
-				Entry entry = activeCache.get(i);
+				content.write(output);
 				
-				if (filteredCache.contains(entry)) continue;
+				output.flush();
 				
-				if (entry.getProgramType().equalsIgnoreCase(type))
-					filteredCache.add(entry);
+				// Make sure the content is on the disk before the file is renamed, or a crash could leave an empty file in its place.
+				channel.force(true);
 			}
 			
-			return filteredCache;
-		}
-		
-		// If the type is "all", filter by the genre.
-		if (type.equalsIgnoreCase("all")) {
+			// Keep the permissions the file has been given.
+			if (Files.exists(target) && Files.getFileStore(target).supportsFileAttributeView(PosixFileAttributeView.class))
+				Files.setPosixFilePermissions(temporary, Files.getPosixFilePermissions(target));
 			
-			for (int i = from; i < to; i++) {
+			try {
+				
+				Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
 				
-				Entry entry = activeCache.get(i);
+			} catch (AtomicMoveNotSupportedException e) {
 				
-				if (filteredCache.contains(entry)) continue;
+				LOGGER.warn("Atomic moves aren't supported by the file system, replacing {} directly...", target.getFileName());
 				
-				if (entry.getGenres().contains(genre))
-					filteredCache.add(entry);
+				Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
 			}
 			
-			return filteredCache;
+			syncDirectory(target.getParent());
+			
+			Timer.builder("wexo.cache.write")
+					.description("The time it takes to write the cache to disk")
+					.tag("file", kind)
+					.register(Metrics.globalRegistry)
+					.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+			
+			cacheSize("wexo.cache.write.size", kind).record(Files.size(target));
+			
+		} finally {
+			
+			// Don't leave a half written file behind.
+			Files.deleteIfExists(temporary);
 		}
+	}
+	
+	/**
+	 * Flushes the entries of a directory to disk, so a rename in it survives a crash.
+	 * Not every platform can open a directory, so this is only done where it can be.
+	 */
+	private static void syncDirectory(Path directory) {
 		
-		// Filter by both the genre and the type.
-		for (int i = from; i < to; i++) {
+		try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
 			
-			Entry entry = activeCache.get(i);
+			channel.force(true);
 			
-			if (filteredCache.contains(entry)) continue;
+		} catch (IOException e) {
 			
-			if (entry.getGenres().contains(genre) && entry.getProgramType().equalsIgnoreCase(type))
-				filteredCache.add(entry);
+			LOGGER.debug("Failed to sync the directory {}! ({})", directory, e.toString());
 		}
+	}
+	
+	/**
+	 * Writes an entry as JSON, in the same format as the JSON cache.
+	 *
+	 * @param writer The writer to write the entry to.
+	 * @param entry  The entry to write.
+	 */
+	public static void writeEntry(JsonWriter writer, Entry entry) throws IOException {
+		
+		writer.beginObject();
+		
+		writer.name("id").value(entry.getId());
+		
+		writer.name("title").value(entry.getTitle());
+		writer.name("description").value(entry.getDescription());
+		writer.name("programType").value(entry.getProgramType());
+		
+		writer.name("releaseYear").value(entry.getReleaseYear());
+		
+		writer.name("covers");
+		writeImages(writer, entry.getCovers());
+		
+		writer.name("backdrops");
+		writeImages(writer, entry.getBackdrops());
+		
+		writer.name("genres");
+		writeStrings(writer, entry.getGenres());
+		
+		writer.name("actors");
+		writeStrings(writer, entry.getActors());
 		
-		return filteredCache;
+		writer.name("directors");
+		writeStrings(writer, entry.getDirectors());
+		
+		writer.name("trailers");
+		writeStrings(writer, entry.getTrailers());
+		
+		writer.endObject();
 	}
 	
-	public ArrayList<Entry> getFallbackCache() {
+	private static void writeImages(JsonWriter writer, ImageSet images) throws IOException {
 		
-		return fallbackCache;
+		writer.beginObject();
+		
+		for (int i = 0; i < images.size(); i++) {
+			
+			writer.name(images.getUrl(i)).beginArray();
+			writer.value(images.getWidth(i));
+			writer.value(images.getHeight(i));
+			writer.endArray();
+		}
+		
+		writer.endObject();
 	}
 	
-	public long getLastUpdated() {
+	private static void writeStrings(JsonWriter writer, List<String> values) throws IOException {
 		
-		return lastUpdated;
+		writer.beginArray();
+		
+		for (String value : values)
+			writer.value(value);
+		
+		writer.endArray();
 	}
 	
-	public File getCacheFile() {
+	void stage(Entry entry) {
 		
-		return cacheFile;
+		// Entries are keyed by their ID, so anything we already know about is skipped.
+		if (!pendingIds.add(entry.getId())) return;
+		
+		pendingCache.add(entry);
 	}
 	
-	private Entry defineEntry(JsonObject entry) {
+	Entry defineEntry(JsonObject entry) {
 		
 		JsonElement rawId = entry.get("guid");
 		
@@ -320,8 +749,8 @@ public class REST {
 		
 		int releaseYear = rawReleaseYear == null || rawReleaseYear.isJsonNull() ? -1 : rawReleaseYear.getAsInt();
 		
-		HashMap<String, List<Integer>> covers = new HashMap<>();
-		HashMap<String, List<Integer>> backdrops = new HashMap<>();
+		ImageSet.Builder covers = ImageSet.builder();
+		ImageSet.Builder backdrops = ImageSet.builder();
 		
 		ArrayList<String> genres = new ArrayList<>();
 		
@@ -348,10 +777,10 @@ public class REST {
 			int height = thumbnail.get("plprogram$height").getAsInt();
 			
 			if (url.contains("po") || url.contains("Poster"))
-				covers.put(url, List.of(width, height));
+				covers.add(url, width, height);
 			
 			else if (url.contains("bd"))
-				backdrops.put(url, List.of(width, height));
+				backdrops.add(url, width, height);
 		}
 		
 		// Handle the genres.
@@ -409,10 +838,10 @@ public class REST {
 			trailers.add(url);
 		}
 		
-		return new Entry(id, title, description, programType, releaseYear, covers, backdrops, genres, actors, directors, trailers);
+		return new Entry(id, title, description, programType, releaseYear, covers.build(), backdrops.build(), genres, actors, directors, trailers);
 	}
 	
-	private Entry defineCachedEntry(JsonObject entry) {
+	Entry defineCachedEntry(JsonObject entry) {
 		
 		JsonElement rawId = entry.get("id");
 		
@@ -433,8 +862,8 @@ public class REST {
 		if (id.equals("N/A") || title.equals("N/A") || description.equals("N/A") || programType.equals("N/A") || releaseYear == -1)
 			return null;
 		
-		HashMap<String, List<Integer>> covers = new HashMap<>();
-		HashMap<String, List<Integer>> backdrops = new HashMap<>();
+		ImageSet.Builder covers = ImageSet.builder();
+		ImageSet.Builder backdrops = ImageSet.builder();
 		
 		ArrayList<String> genres = new ArrayList<>();
 		
@@ -443,7 +872,7 @@ public class REST {
 		
 		ArrayList<String> trailers = new ArrayList<>();
 		
-		// Handle the covers and backdrops (convert to HashMap).
+		// Handle the covers and backdrops.
 		JsonObject coversObject = entry.getAsJsonObject("covers");
 		JsonObject backdropsObject = entry.getAsJsonObject("backdrops");
 		
@@ -461,7 +890,7 @@ public class REST {
 			int width = cover.get(0).getAsInt();
 			int height = cover.get(1).getAsInt();
 			
-			covers.put(key, List.of(width, height));
+			covers.add(key, width, height);
 		}
 		
 		// For each backdrop, add it to the backdrops map.
@@ -472,7 +901,7 @@ public class REST {
 			int width = backdrop.get(0).getAsInt();
 			int height = backdrop.get(1).getAsInt();
 			
-			backdrops.put(key, List.of(width, height));
+			backdrops.add(key, width, height);
 		}
 		
 		// Handle the genres.
@@ -525,6 +954,6 @@ public class REST {
 			trailers.add(trailer);
 		}
 		
-		return new Entry(id, title, description, programType, releaseYear, covers, backdrops, genres, actors, directors, trailers);
+		return new Entry(id, title, description, programType, releaseYear, covers.build(), backdrops.build(), genres, actors, directors, trailers);
 	}
 }
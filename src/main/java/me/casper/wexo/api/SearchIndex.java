@@ -0,0 +1,286 @@
+package me.casper.wexo.api;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A full-text prefix index over the titles, descriptions, actors and directors of a list of entries.
+ */
+public final class SearchIndex {
+	
+	private final int size;
+	
+	private final String[] terms; // Sorted
+	private final int[][] postings; // Term -> Positions (Sorted), or null if the term is dense.
+	private final BitSet[] densePostings; // Term -> Positions, or null if the term is sparse.
+	
+	public SearchIndex(List<Entry> entries) {
+		
+		size = entries.size();
+		
+		HashMap<String, Postings> index = new HashMap<>();
+		
+		for (int i = 0; i < size; i++) {
+			
+			Entry entry = entries.get(i);
+			
+			final int position = i;
+			
+			Consumer<String> add = term -> index.computeIfAbsent(term, key -> new Postings()).add(position);
+			
+			tokenize(entry.getTitle(), add);
+			tokenize(entry.getDescription(), add);
+			
+			entry.getActors().forEach(actor -> tokenize(actor, add));
+			entry.getDirectors().forEach(director -> tokenize(director, add));
+		}
+		
+		terms = index.keySet().toArray(new String[0]);
+		
+		Arrays.sort(terms);
+		
+		postings = new int[terms.length][];
+		densePostings = new BitSet[terms.length];
+		
+		for (int i = 0; i < terms.length; i++) {
+			
+			Postings positions = index.get(terms[i]);
+			
+			// A bitset takes up less memory than the positions once more than 1 in 32 entries contain the term.
+			if (positions.size * 32L < size) {
+				
+				postings[i] = positions.toArray();
+				
+				continue;
+			}
+			
+			BitSet dense = new BitSet(size);
+			
+			for (int j = 0; j < positions.size; j++)
+				dense.set(positions.positions[j]);
+			
+			densePostings[i] = dense;
+		}
+	}
+	
+	/**
+	 * Finds the entries matching a query. Every word of the query has to match the start of a word in the entry.
+	 * A word ending in a single "a" also matches words with an "å" in its place, as it may be the first half of an "aa".
+	 *
+	 * @param query The query to search for.
+	 * @return The positions of the matching entries, this set is owned by the caller.
+	 */
+	public BitSet search(String query) {
+		
+		BitSet[] result = {null};
+		
+		tokenize(query, prefix -> {
+			
+			// Once nothing matches, the remaining words can't change that.
+			if (result[0] != null && result[0].isEmpty()) return;
+			
+			BitSet matches = new BitSet(size);
+			
+			match(prefix, matches);
+			
+			String alternative = alternativePrefix(prefix);
+			
+			if (alternative != null) match(alternative, matches);
+			
+			if (result[0] == null) result[0] = matches;
+			else result[0].and(matches);
+		});
+		
+		return result[0] == null ? new BitSet() : result[0];
+	}
+	
+	/**
+	 * Adds the positions of every term starting with a prefix.
+	 */
+	private void match(String prefix, BitSet matches) {
+		
+		for (int i = lowerBound(prefix); i < terms.length && terms[i].startsWith(prefix); i++) {
+			
+			if (densePostings[i] != null) {
+				
+				matches.or(densePostings[i]);
+				
+				continue;
+			}
+			
+			for (int position : postings[i])
+				matches.set(position);
+		}
+	}
+	
+	/**
+	 * Works out the other prefix a normalized prefix may be the start of, while it is still being typed.
+	 * A prefix ending in a single "a" could be followed by another "a", which would turn it into an "å". ("sa" -> "så", as in "Saab")
+	 *
+	 * @param prefix The normalized prefix.
+	 * @return The prefix with its last "a" turned into an "å", or null if it doesn't end in an "a".
+	 */
+	static String alternativePrefix(CharSequence prefix) {
+		
+		StringBuilder alternative = new StringBuilder(prefix.length());
+		
+		return alternativePrefix(prefix, alternative) ? alternative.toString() : null;
+	}
+	
+	/**
+	 * Same as {@link #alternativePrefix(CharSequence)}, but writes the prefix into a reusable builder.
+	 *
+	 * @return Whether the prefix has an alternative.
+	 */
+	static boolean alternativePrefix(CharSequence prefix, StringBuilder alternative) {
+		
+		final int last = prefix.length() - 1;
+		
+		// Pairs of "a" have already been turned into "å", so a trailing "a" is always on its own.
+		if (last < 0 || prefix.charAt(last) != 'a') return false;
+		
+		alternative.setLength(0);
+		alternative.append(prefix, 0, last).append('å');
+		
+		return true;
+	}
+	
+	public int getTermCount() {
+		
+		return terms.length;
+	}
+	
+	/**
+	 * Splits text into normalized words. Letters are lowercased and stripped of accents, except for æ, ø and å,
+	 * and "aa" is treated as the old spelling of "å", so "Aalborg" and "Ålborg" are the same word.
+	 *
+	 * @param text     The text to split.
+	 * @param consumer Receives every word, in order.
+	 */
+	public static void tokenize(String text, Consumer<String> consumer) {
+		
+		if (text == null) return;
+		
+		StringBuilder word = new StringBuilder();
+		
+		for (int i = 0; i <= text.length(); i++) {
+			
+			final char c = i < text.length() ? text.charAt(i) : ' ';
+			
+			if (Character.isLetterOrDigit(c)) {
+				
+				append(word, c);
+				
+				continue;
+			}
+			
+			if (word.length() == 0) continue;
+			
+			consumer.accept(word.toString());
+			
+			word.setLength(0);
+		}
+	}
+	
+	/**
+	 * Normalizes a whole string the same way as {@link #tokenize(String, Consumer)}, but keeps it as one string with single spaces between the words.
+	 *
+	 * @param text       The text to normalize.
+	 * @param normalized Receives the normalized text, it is cleared first.
+	 */
+	public static void normalize(CharSequence text, StringBuilder normalized) {
+		
+		normalized.setLength(0);
+		
+		boolean separated = false;
+		
+		for (int i = 0; i < text.length(); i++) {
+			
+			final char c = text.charAt(i);
+			
+			if (!Character.isLetterOrDigit(c)) {
+				
+				separated = normalized.length() > 0;
+				
+				continue;
+			}
+			
+			if (separated) normalized.append(' ');
+			
+			separated = false;
+			
+			append(normalized, c);
+		}
+	}
+	
+	public static String normalize(String text) {
+		
+		StringBuilder normalized = new StringBuilder(text.length());
+		
+		normalize(text, normalized);
+		
+		return normalized.toString();
+	}
+	
+	/**
+	 * Appends a normalized letter to a word, turning "aa" into "å" as it goes.
+	 */
+	private static void append(StringBuilder word, char c) {
+		
+		c = fold(Character.toLowerCase(c));
+		
+		final int last = word.length() - 1;
+		
+		if (c == 'a' && last >= 0 && word.charAt(last) == 'a') {
+			
+			word.setCharAt(last, 'å');
+			
+			return;
+		}
+		
+		word.append(c);
+	}
+	
+	private static char fold(char c) {
+		
+		// Æ, Ø and Å are letters of their own in Danish, but the accents of other letters are dropped. (é -> e)
+		if (c < 0x80 || c == 'æ' || c == 'ø' || c == 'å') return c;
+		
+		return Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD).charAt(0);
+	}
+	
+	private int lowerBound(String prefix) {
+		
+		final int index = Arrays.binarySearch(terms, prefix);
+		
+		return index >= 0 ? index : -index - 1;
+	}
+	
+	/**
+	 * A growable list of positions, which ignores a position if it was the last one added.
+	 */
+	private static final class Postings {
+		
+		private int[] positions = new int[4];
+		private int size = 0;
+		
+		void add(int position) {
+			
+			if (size > 0 && positions[size - 1] == position) return;
+			
+			if (size == positions.length)
+				positions = Arrays.copyOf(positions, size * 2);
+			
+			positions[size++] = position;
+		}
+		
+		int[] toArray() {
+			
+			return Arrays.copyOf(positions, size);
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package me.casper.wexo.api;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pulls the catalogue snapshot of another instance, so only one instance of a cluster has to fetch the feed.
+ * The snapshot is requested conditionally on the version of the catalogue we already have, so an unchanged catalogue costs a single 304.
+ */
+public final class SnapshotClient {
+	
+	public static final String PATH = "/actuator/snapshot";
+	
+	private final OkHttpClient client =
+			new OkHttpClient.Builder()
+					.connectTimeout(Duration.ofSeconds(10))
+					.readTimeout(Duration.ofMinutes(1))
+					.build();
+	
+	private final String url;
+	
+	/**
+	 * @param leaderUrl The management address of the instance that fetches the feed, such as "http://leader:8081".
+	 */
+	public SnapshotClient(String leaderUrl) {
+		
+		this.url = leaderUrl.replaceAll("/+$", "") + PATH;
+	}
+	
+	/**
+	 * Fetches the snapshot of the leader, unless it is the version we already have.
+	 *
+	 * @param version The version of the catalogue we are serving.
+	 * @return The snapshot, or null if the leader has the same version, or no catalogue yet.
+	 * @throws IOException If the leader couldn't be reached, or sent something that isn't a snapshot.
+	 */
+	public CatalogueSnapshot fetch(long version) throws IOException {
+		
+		final long startTime = System.nanoTime();
+		
+		String outcome = "error";
+		
+		// OkHttp asks for and decompresses GZIP on its own, as long as we don't set Accept-Encoding ourselves.
+		Request request =
+				new Request.Builder()
+						.url(url)
+						.header("If-None-Match", etag(version))
+						.build();
+		
+		try (Response response = client.newCall(request).execute()) {
+			
+			if (response.code() == 304 || response.code() == 503) {
+				
+				outcome = response.code() == 304 ? "unchanged" : "unavailable";
+				
+				return null;
+			}
+			
+			ResponseBody body = response.body();
+			
+			if (!response.isSuccessful() || body == null)
+				throw new IOException("The leader answered with HTTP " + response.code() + "!");
+			
+			CatalogueSnapshot snapshot = CatalogueSnapshot.read(ByteBuffer.wrap(body.bytes()));
+			
+			outcome = "updated";
+			
+			return snapshot;
+			
+		} finally {
+			
+			Timer.builder("wexo.cluster.pull")
+					.description("The time taken to pull the catalogue snapshot of the leader")
+					.tag("outcome", outcome)
+					.register(Metrics.globalRegistry)
+					.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+		}
+	}
+	
+	public void shutdown() {
+		
+		client.dispatcher().executorService().shutdown();
+		client.connectionPool().evictAll();
+	}
+	
+	/**
+	 * The ETag of the snapshot of a catalogue version, this is the same on every instance serving that version.
+	 */
+	public static String etag(long version) {
+		
+		return "\"" + Long.toHexString(version) + "\"";
+	}
+}
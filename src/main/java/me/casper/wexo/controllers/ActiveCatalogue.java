@@ -0,0 +1,32 @@
+package me.casper.wexo.controllers;
+
+import me.casper.wexo.WEXOApplication;
+import me.casper.wexo.api.Catalogue;
+import me.casper.wexo.api.REST;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Looks up the catalogue a request is served from.
+ */
+final class ActiveCatalogue {
+	
+	private ActiveCatalogue() {
+	}
+	
+	/**
+	 * Callers keep the catalogue for the whole request, so the update thread can't swap it out halfway through.
+	 *
+	 * @return The catalogue currently being served, which may still be empty.
+	 * @throws ResponseStatusException A 503 if the application was started without a cache path, as nothing loads a catalogue then.
+	 */
+	static Catalogue get() {
+		
+		REST rest = WEXOApplication.getRestInstance();
+		
+		if (rest == null)
+			throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "There is no catalogue to serve!");
+		
+		return rest.getCatalogue();
+	}
+}
@@ -0,0 +1,189 @@
+package me.casper.wexo.controllers;
+
+import com.google.gson.stream.JsonWriter;
+import me.casper.wexo.api.Autocomplete;
+import me.casper.wexo.api.Catalogue;
+import me.casper.wexo.api.CatalogueIndex;
+import me.casper.wexo.api.REST;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+@RestController
+@RequestMapping("/api")
+public class ApiController {
+	
+	public static final int MAX_PAGE_SIZE = 1_000;
+	
+	// The amount of entries at the end of a page a cursor points at, so the next page can continue from one of them if the others are deleted.
+	private static final int CURSOR_ENTRIES = 4;
+	
+	/**
+	 * Serves a page of entries as JSON, with a cursor for the next page (null on the last page) to pass back as the "cursor" parameter.
+	 */
+	@GetMapping("/entries")
+	public void entries(HttpServletResponse response, ServletWebRequest request,
+	                    @RequestParam(value = "genre", defaultValue = "all") String genre,
+	                    @RequestParam(value = "type", defaultValue = "all") String type,
+	                    @RequestParam(value = "limit", defaultValue = "100") int limit,
+	                    @RequestParam(value = "cursor", required = false) String cursor
+	) throws IOException {
+		
+		if (limit < 1 || limit > MAX_PAGE_SIZE)
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The limit must be between 1 and " + MAX_PAGE_SIZE + "!");
+		
+		Catalogue catalogue = ActiveCatalogue.get();
+		CatalogueIndex index = catalogue.getIndex();
+		
+		if (HttpCaching.checkNotModified(request, catalogue.getVersion(), catalogue.getLastModified(), genre, type, limit, cursor))
+			return;
+		
+		int position = cursor == null ? 0 : resolveCursor(catalogue, cursor);
+		
+		response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+		response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+		
+		// Stream the entries straight into the response instead of building the whole page in memory first.
+		JsonWriter writer = new JsonWriter(response.getWriter());
+		
+		writer.beginObject();
+		writer.name("entries").beginArray();
+		
+		// The positions of the last entries written, the most recent at written % CURSOR_ENTRIES.
+		int[] last = new int[CURSOR_ENTRIES];
+		int written = 0;
+		
+		for (int i = 0; i < limit; i++) {
+			
+			position = index.next(position, genre, type);
+			
+			if (position < 0) break;
+			
+			REST.writeEntry(writer, catalogue.getEntries().get(position));
+			
+			last[written++ % CURSOR_ENTRIES] = position++;
+		}
+		
+		writer.endArray();
+		
+		// Only hand out a cursor if there is anything left to fetch.
+		if (written > 0 && index.next(last[(written - 1) % CURSOR_ENTRIES] + 1, genre, type) >= 0)
+			writer.name("next").value(encodeCursor(catalogue, last, written));
+		else
+			writer.name("next").nullValue();
+		
+		writer.endObject();
+		writer.flush();
+	}
+	
+	/**
+	 * Suggests titles and people starting with what the user has typed so far, most recent first.
+	 * Titles link to their entry, and people to a search for their name.
+	 */
+	@GetMapping("/autocomplete")
+	public void autocomplete(HttpServletResponse response, ServletWebRequest request,
+	                         @RequestParam(value = "q", defaultValue = "") String query,
+	                         @RequestParam(value = "limit", defaultValue = "10") int limit
+	) throws IOException {
+		
+		if (limit < 1 || limit > Autocomplete.MAX_SUGGESTIONS)
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The limit must be between 1 and " + Autocomplete.MAX_SUGGESTIONS + "!");
+		
+		Catalogue catalogue = ActiveCatalogue.get();
+		
+		if (HttpCaching.checkNotModified(request, catalogue.getVersion(), catalogue.getLastModified(), query, limit))
+			return;
+		
+		Autocomplete autocomplete = catalogue.getAutocomplete();
+		
+		int[] suggestions = new int[limit];
+		final int count = autocomplete.complete(query, suggestions);
+		
+		response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+		response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+		
+		JsonWriter writer = new JsonWriter(response.getWriter());
+		
+		writer.beginObject();
+		writer.name("suggestions").beginArray();
+		
+		for (int i = 0; i < count; i++) {
+			
+			final int suggestion = suggestions[i];
+			final boolean title = autocomplete.getKind(suggestion) == Autocomplete.TITLE;
+			
+			writer.beginObject();
+			writer.name("text").value(autocomplete.getLabel(suggestion));
+			writer.name("type").value(title ? "title" : "person");
+			writer.name("id").value(autocomplete.getId(suggestion));
+			writer.endObject();
+		}
+		
+		writer.endArray();
+		writer.endObject();
+		writer.flush();
+	}
+	
+	/**
+	 * Turns a cursor into the position to continue from, which is after the last entry of the previous page that still exists.
+	 */
+	private static int resolveCursor(Catalogue catalogue, String cursor) {
+		
+		try {
+			
+			String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+			
+			final int separator = decoded.lastIndexOf(':');
+			
+			String[] ids = decoded.substring(0, separator).split("\n");
+			int position = Integer.parseInt(decoded.substring(separator + 1));
+			
+			if (position < 0) throw new IllegalArgumentException();
+			
+			for (String id : ids) {
+				
+				final int current = catalogue.positionOf(id);
+				
+				if (current >= 0) return current + 1;
+			}
+			
+			return position + 1;
+			
+		} catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+			
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor!");
+		}
+	}
+	
+	/**
+	 * Builds the cursor of a page.
+	 *
+	 * @param last    The positions of the last entries of the page, as a ring buffer.
+	 * @param written The amount of entries on the page.
+	 */
+	private static String encodeCursor(Catalogue catalogue, int[] last, int written) {
+		
+		StringBuilder cursor = new StringBuilder();
+		
+		for (int i = written - 1; i >= Math.max(0, written - CURSOR_ENTRIES); i--) {
+			
+			if (cursor.length() > 0) cursor.append('\n');
+			
+			cursor.append(catalogue.getEntries().get(last[i % CURSOR_ENTRIES]).getId());
+		}
+		
+		cursor.append(':').append(last[(written - 1) % CURSOR_ENTRIES]);
+		
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.toString().getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,135 @@
+package me.casper.wexo.controllers;
+
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import static me.casper.wexo.WEXOApplication.LOGGER;
+
+/**
+ * Conditional request support for responses that only depend on the catalogue, the request parameters and the deployed build.
+ */
+final class HttpCaching {
+	
+	// The catalogue is refreshed every 15 minutes at most, so caches only have to revalidate once in a while.
+	private static final String CACHE_CONTROL = CacheControl.maxAge(60, TimeUnit.SECONDS).cachePublic().getHeaderValue();
+	
+	// A deploy can change the markup of every page, and pages link to the static files by the hash of their content.
+	// So every ETag includes a hash of the classes, templates and static files, and nothing is older than the start of the application.
+	private static final long STARTED = System.currentTimeMillis() / 1000 * 1000;
+	private static final String BUILD = hashBuild();
+	
+	private HttpCaching() {
+	}
+	
+	/**
+	 * Adds the caching headers to the response, and checks whether the client already has the current version of it.
+	 * If it does, the response has been turned into a 304 and the caller should return without doing any work.
+	 *
+	 * @param request      The request being handled.
+	 * @param version      The version of the content the response is built from.
+	 * @param lastModified The time that content last changed.
+	 * @param parameters   The request parameters the response depends on.
+	 * @return Whether the client already has the current version of the response.
+	 */
+	static boolean checkNotModified(ServletWebRequest request, long version, long lastModified, Object... parameters) {
+		
+		// The ETag is weak, as the same content may be sent compressed or uncompressed.
+		String etag = "W/\"" + Long.toHexString(version) + "-" + Integer.toHexString(Arrays.hashCode(parameters)) + "-" + BUILD + "\"";
+		
+		return checkNotModified(request, etag, lastModified);
+	}
+	
+	/**
+	 * Same as {@link #checkNotModified(ServletWebRequest, long, long, Object...)}, but with an ETag that has already been built.
+	 */
+	static boolean checkNotModified(ServletWebRequest request, String etag, long lastModified) {
+		
+		HttpServletResponse response = request.getResponse();
+		
+		if (response != null)
+			response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+		
+		// An empty catalogue has never been modified, so it doesn't get a Last-Modified header.
+		return request.checkNotModified(etag, lastModified > 0 ? Math.max(lastModified, STARTED) : -1);
+	}
+	
+	/**
+	 * Hashes the paths and contents of the application classes, templates and static files, this is the same on every instance running the same build.
+	 */
+	private static String hashBuild() {
+		
+		try {
+			
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			
+			for (Map.Entry<String, Resource> file : buildFiles().entrySet()) {
+				
+				digest.update(file.getKey().getBytes(StandardCharsets.UTF_8));
+				
+				try (InputStream input = file.getValue().getInputStream()) {
+					
+					digest.update(StreamUtils.copyToByteArray(input));
+				}
+			}
+			
+			return HexFormat.of().formatHex(digest.digest(), 0, 4);
+			
+		} catch (IOException | NoSuchAlgorithmException e) {
+			
+			// Fall back to a value that changes on every start, which is never wrong, just less cacheable.
+			LOGGER.warn("Failed to hash the build, pages are revalidated after every restart!", e);
+			
+			return Long.toHexString(STARTED);
+		}
+	}
+	
+	/**
+	 * Lists the application classes, templates and static files by their path, sorted as the order they are found in depends on the file system.
+	 */
+	static TreeMap<String, Resource> buildFiles() throws IOException {
+		
+		PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver(HttpCaching.class.getClassLoader());
+		
+		// The classes are found next to this one, as another directory or jar on the class path may have the same package.
+		String self = HttpCaching.class.getResource(HttpCaching.class.getSimpleName() + ".class").toString();
+		String classes = self.substring(0, self.length() - HttpCaching.class.getName().length() - ".class".length()) + "me/casper/";
+		
+		TreeMap<String, Resource> files = new TreeMap<>();
+		
+		for (String root : new String[]{classes, "classpath:/static/", "classpath:/templates/"}) {
+			
+			Resource rootResource = resolver.getResource(root);
+			
+			if (!rootResource.exists()) continue;
+			
+			final String rootUrl = rootResource.getURL().toString();
+			final String name = root.startsWith("classpath:/") ? root.substring("classpath:/".length()) : "me/casper/";
+			
+			for (Resource resource : resolver.getResources(root + "**")) {
+				
+				final String url = resource.getURL().toString();
+				
+				if (resource.isReadable() && url.startsWith(rootUrl) && !url.endsWith("/"))
+					files.put(name + url.substring(rootUrl.length()), resource);
+			}
+		}
+		
+		return files;
+	}
+}
@@ -0,0 +1,199 @@
+package me.casper.wexo.controllers;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import me.casper.wexo.WEXOApplication;
+import me.casper.wexo.WexoProperties;
+import me.casper.wexo.api.Catalogue;
+import me.casper.wexo.api.REST;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Caches the rendered index, search and entry pages, so hot pages are served as a copy of compressed bytes instead of being filtered and rendered again.
+ * Pages are keyed by the catalogue version, so a refreshed catalogue never serves pages rendered from the old one.
+ */
+@Component
+public class PageCacheFilter extends OncePerRequestFilter {
+	
+	private final Cache<String, CachedPage> pages;
+	private final int maxRange;
+	
+	public PageCacheFilter(WexoProperties properties, MeterRegistry registry) {
+		
+		// Caffeine evicts by W-TinyLFU, so a burst of one-off pages can't push the hot pages out.
+		// Pages of an older catalogue are never asked for again, so they expire instead of having to be cleared on every refresh.
+		pages =
+				Caffeine.newBuilder()
+						.maximumWeight(properties.getPageCache().getSize().toBytes())
+						.expireAfterAccess(properties.getPageCache().getExpireAfterAccess())
+						.weigher((String key, CachedPage page) -> key.length() * 2 + page.body().length)
+						.recordStats()
+						.build();
+		
+		CaffeineCacheMetrics.monitor(registry, pages, "pages");
+		
+		maxRange = properties.getPageCache().getMaxRange();
+	}
+	
+	@Override
+	protected boolean shouldNotFilter(HttpServletRequest request) {
+		
+		if (!"GET".equals(request.getMethod())) return true;
+		
+		String path = request.getRequestURI().substring(request.getContextPath().length());
+		
+		return !path.equals("/") && !path.equals("/search") && !path.startsWith("/entry/");
+	}
+	
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
+		
+		REST rest = WEXOApplication.getRestInstance();
+		
+		if (rest == null) {
+			
+			chain.doFilter(request, response);
+			
+			return;
+		}
+		
+		Catalogue catalogue = rest.getCatalogue();
+		
+		final String key = Long.toHexString(catalogue.getVersion()) + " " + request.getRequestURI() + "?" + request.getQueryString();
+		
+		response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+		
+		// Let wide pages stream straight through, instead of buffering all of them to cache a page that is rarely asked for again.
+		if (isWide(request)) {
+			
+			response.setHeader("X-Cache", "BYPASS");
+			
+			chain.doFilter(request, response);
+			
+			return;
+		}
+		
+		CachedPage page = pages.getIfPresent(key);
+		
+		if (page != null) {
+			
+			response.setHeader("X-Cache", "HIT");
+			
+			if (HttpCaching.checkNotModified(new ServletWebRequest(request, response), page.etag(), catalogue.getLastModified()))
+				return;
+			
+			response.setContentType(page.contentType());
+			
+			send(request, response, page.body());
+			
+			return;
+		}
+		
+		response.setHeader("X-Cache", "MISS");
+		
+		ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+		
+		chain.doFilter(request, wrapper);
+		
+		String contentType = wrapper.getContentType();
+		
+		// Only cache complete pages, not revalidations or errors.
+		if (wrapper.getStatus() != HttpServletResponse.SC_OK || wrapper.getContentSize() == 0 || contentType == null || !contentType.startsWith("text/html")) {
+			
+			wrapper.copyBodyToResponse();
+			
+			return;
+		}
+		
+		page = new CachedPage(compress(wrapper.getContentAsByteArray()), contentType, wrapper.getHeader(HttpHeaders.ETAG));
+		
+		pages.put(key, page);
+		
+		send(request, response, page.body());
+	}
+	
+	/**
+	 * Checks whether a request is for an index page spanning more than the max range.
+	 */
+	private boolean isWide(HttpServletRequest request) {
+		
+		String start = request.getParameter("start");
+		String end = request.getParameter("end");
+		
+		if (start == null && end == null) return false;
+		
+		try {
+			
+			final long from = start == null ? 1 : Long.parseLong(start);
+			final long to = end == null ? 100 : Long.parseLong(end);
+			
+			return to - from > maxRange;
+			
+		} catch (NumberFormatException e) {
+			
+			return false;
+		}
+	}
+	
+	/**
+	 * Sends a compressed body, decompressing it for the few clients that don't accept GZIP.
+	 */
+	private static void send(HttpServletRequest request, HttpServletResponse response, byte[] body) throws IOException {
+		
+		String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+		
+		if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+			
+			response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+			response.setContentLength(body.length);
+			response.getOutputStream().write(body);
+			
+			return;
+		}
+		
+		try (InputStream input = new GZIPInputStream(new ByteArrayInputStream(body))) {
+			
+			StreamUtils.copy(input, response.getOutputStream());
+		}
+	}
+	
+	private static byte[] compress(byte[] body) throws IOException {
+		
+		ByteArrayOutputStream output = new ByteArrayOutputStream(body.length / 4);
+		
+		try (GZIPOutputStream gzip = new GZIPOutputStream(output)) {
+			
+			gzip.write(body);
+		}
+		
+		return output.toByteArray();
+	}
+	
+	/**
+	 * A rendered page.
+	 *
+	 * @param body        The body of the page, compressed with GZIP.
+	 * @param contentType The content type of the page.
+	 * @param etag        The ETag the page was rendered with.
+	 */
+	private record CachedPage(byte[] body, String contentType, String etag) {
+	}
+}
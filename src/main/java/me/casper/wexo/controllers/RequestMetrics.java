@@ -0,0 +1,72 @@
+package me.casper.wexo.controllers;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the pages, including the rendering of their templates, split by the kind of filter the request used.
+ * Pages served from the page cache never reach the controllers, so they only show up in the "http.server.requests" metrics.
+ */
+@Component
+public class RequestMetrics implements HandlerInterceptor {
+	
+	private static final String START_TIME = RequestMetrics.class.getName() + ".startTime";
+	
+	private final MeterRegistry registry;
+	
+	public RequestMetrics(MeterRegistry registry) {
+		
+		this.registry = registry;
+	}
+	
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+		
+		request.setAttribute(START_TIME, System.nanoTime());
+		
+		return true;
+	}
+	
+	@Override
+	public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception exception) {
+		
+		if (!(handler instanceof HandlerMethod method) || !(request.getAttribute(START_TIME) instanceof Long startTime))
+			return;
+		
+		Timer.builder("wexo.requests")
+				.description("The time it takes to build and render a page")
+				.tag("page", method.getMethod().getName())
+				.tag("filter", filterOf(request))
+				.tag("status", String.valueOf(response.getStatus()))
+				.publishPercentileHistogram()
+				.register(registry)
+				.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+	}
+	
+	/**
+	 * Describes which filters a request used, without the values of the filters to keep the amount of time series down.
+	 */
+	private static String filterOf(HttpServletRequest request) {
+		
+		final boolean genre = isFiltered(request.getParameter("genre"));
+		final boolean type = isFiltered(request.getParameter("type"));
+		
+		if (genre && type) return "genre+type";
+		if (genre) return "genre";
+		if (type) return "type";
+		
+		return "none";
+	}
+	
+	private static boolean isFiltered(String value) {
+		
+		return value != null && !value.equalsIgnoreCase("all");
+	}
+}
@@ -0,0 +1,171 @@
+package me.casper.wexo.controllers;
+
+import org.springframework.boot.autoconfigure.web.WebProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+import org.springframework.web.servlet.resource.HttpResource;
+import org.springframework.web.servlet.resource.ResourceResolverChain;
+import org.springframework.web.servlet.resource.VersionResourceResolver;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URL;
+import java.nio.channels.ReadableByteChannel;
+import java.time.Duration;
+import java.util.List;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+	
+	// The URL of a versioned file changes with its content, so it can be cached for as long as browsers allow.
+	private static final String VERSIONED_CACHE_CONTROL = CacheControl.maxAge(Duration.ofDays(365)).cachePublic().getHeaderValue();
+	
+	private final RequestMetrics requestMetrics;
+	private final WebProperties.Resources resources;
+	
+	public WebConfig(RequestMetrics requestMetrics, WebProperties properties) {
+		
+		this.requestMetrics = requestMetrics;
+		this.resources = properties.getResources();
+	}
+	
+	@Override
+	public void addInterceptors(InterceptorRegistry registry) {
+		
+		registry.addInterceptor(requestMetrics).addPathPatterns("/", "/search", "/entry/*");
+	}
+	
+	// Replaces the static resource handling of Spring Boot (spring.web.resources.add-mappings=false), which has a single max-age for every URL.
+	// Unversioned URLs such as /favicon.ico keep the spring.web.resources.cache settings, as they may change with the next deploy.
+	@Override
+	public void addResourceHandlers(ResourceHandlerRegistry registry) {
+		
+		registry.addResourceHandler("/**")
+				.addResourceLocations(resources.getStaticLocations())
+				.setCacheControl(resources.getCache().getCachecontrol().toHttpCacheControl())
+				.resourceChain(resources.getChain().isCache())
+				.addResolver(new EncodedResourceResolver())
+				.addResolver(new ContentVersionResolver().addContentVersionStrategy("/**"));
+	}
+	
+	/**
+	 * Serves the files that were asked for by the hash of their content with a long max-age.
+	 */
+	private static final class ContentVersionResolver extends VersionResourceResolver {
+		
+		@Override
+		protected Resource resolveResourceInternal(HttpServletRequest request, String requestPath, List<? extends Resource> locations, ResourceResolverChain chain) {
+			
+			Resource resource = super.resolveResourceInternal(request, requestPath, locations, chain);
+			
+			// An unversioned path is resolved as is, only a versioned one comes back as an HttpResource with the version as its ETag.
+			return resource instanceof HttpResource versioned ? new VersionedResource(versioned) : resource;
+		}
+	}
+	
+	private record VersionedResource(HttpResource original) implements HttpResource {
+		
+		@Override
+		public HttpHeaders getResponseHeaders() {
+			
+			HttpHeaders headers = original.getResponseHeaders();
+			
+			headers.set(HttpHeaders.CACHE_CONTROL, VERSIONED_CACHE_CONTROL);
+			
+			return headers;
+		}
+		
+		@Override
+		public boolean exists() {
+			
+			return original.exists();
+		}
+		
+		@Override
+		public boolean isReadable() {
+			
+			return original.isReadable();
+		}
+		
+		@Override
+		public boolean isOpen() {
+			
+			return original.isOpen();
+		}
+		
+		@Override
+		public boolean isFile() {
+			
+			return original.isFile();
+		}
+		
+		@Override
+		public URL getURL() throws IOException {
+			
+			return original.getURL();
+		}
+		
+		@Override
+		public URI getURI() throws IOException {
+			
+			return original.getURI();
+		}
+		
+		@Override
+		public File getFile() throws IOException {
+			
+			return original.getFile();
+		}
+		
+		@Override
+		public ReadableByteChannel readableChannel() throws IOException {
+			
+			return original.readableChannel();
+		}
+		
+		@Override
+		public long contentLength() throws IOException {
+			
+			return original.contentLength();
+		}
+		
+		@Override
+		public long lastModified() throws IOException {
+			
+			return original.lastModified();
+		}
+		
+		@Override
+		public Resource createRelative(String relativePath) throws IOException {
+			
+			return original.createRelative(relativePath);
+		}
+		
+		@Override
+		public String getFilename() {
+			
+			return original.getFilename();
+		}
+		
+		@Override
+		public String getDescription() {
+			
+			return original.getDescription();
+		}
+		
+		@Override
+		public InputStream getInputStream() throws IOException {
+			
+			return original.getInputStream();
+		}
+	}
+}
@@ -1,89 +1,111 @@
 package me.casper.wexo.controllers;
 
-import me.casper.wexo.WEXOApplication;
+import me.casper.wexo.api.Catalogue;
+import me.casper.wexo.api.CatalogueQuery;
 import me.casper.wexo.api.Entry;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.ServletWebRequest;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.List;
 
 @Controller
 public class WebController {
 	
+	public static final int MAX_SEARCH_RESULTS = 100;
+	
 	@GetMapping("/")
-	public String index(Model model,
+	public String index(Model model, ServletWebRequest request,
 	                    @RequestParam(value = "start", defaultValue = "1") int start,
 	                    @RequestParam(value = "end", defaultValue = "100") int end,
-	                    @RequestParam(value = "genre", defaultValue = "all") String genre,
-	                    @RequestParam(value = "type", defaultValue = "all") String type
+	                    @RequestParam(value = "genre", defaultValue = "all") List<String> genres,
+	                    @RequestParam(value = "match", defaultValue = "any") String match,
+	                    @RequestParam(value = "type", defaultValue = "all") String type,
+	                    @RequestParam(value = "fromYear", required = false) Integer fromYear,
+	                    @RequestParam(value = "toYear", required = false) Integer toYear,
+	                    @RequestParam(value = "sort", defaultValue = "") String sort
 	) {
 		
-		ArrayList<Entry> entries = WEXOApplication.getRestInstance().getActiveCache(start, end, genre, type);
+		Catalogue catalogue = ActiveCatalogue.get();
 		
-		HashMap<String, Integer> genres = new HashMap<>();
-		HashMap<String, String> coverArt = new HashMap<>(); // A list of URLs to use as cover art for each genre. (Genre -> URL)
+		// The page only changes with the catalogue, so answer revalidations before doing any work.
+		if (HttpCaching.checkNotModified(request, catalogue.getVersion(), catalogue.getLastModified(), start, end, genres, match, type, fromYear, toYear, sort))
+			return null;
 		
-		if (entries == null || entries.isEmpty()) {
+		CatalogueQuery query;
+		
+		try {
 			
-			model.addAttribute("cause", "Der blev ikke fundet noget data i vores system!");
+			query = new CatalogueQuery(start, end, genres, match.equalsIgnoreCase("all"), type,
+					fromYear == null ? Integer.MIN_VALUE : fromYear, toYear == null ? Integer.MAX_VALUE : toYear, CatalogueQuery.Sort.parse(sort));
+			
+		} catch (IllegalArgumentException e) {
+			
+			model.addAttribute("cause", "Ukendt sortering! (Brug year, -year, title eller -title)");
 			
 			return "error";
 		}
 		
-		// For each entry, add the genre to the list of genres if it isn't already there.
-		for (Entry entry : entries) {
+		// The entries are looked up while the page is rendered, and Thymeleaf writes the page out as it goes, so nothing holds the whole page.
+		Catalogue.Selection entries = catalogue.query(query);
+		
+		if (entries == null || entries.isEmpty()) {
+			
+			model.addAttribute("cause", "Der blev ikke fundet noget data i vores system!");
 			
-			// For each genre in the entry (there can be multiple) add it to the HashMap.
-			for (String entryGenre : entry.getGenres()) {
-				
-				// If the genre already exists, increment the count, otherwise add it to the map.
-				if (genres.containsKey(entryGenre)) {
-					
-					genres.put(entryGenre, genres.get(entryGenre) + 1);
-					
-				} else {
-					
-					genres.put(entryGenre, 1);
-				}
-				
-				// Add a cover art URL to the map.
-				for (String url : entry.getBackdrops().keySet()) {
-					
-					int width = entry.getBackdrops().get(url).get(0);
-					int height = entry.getBackdrops().get(url).get(1);
-					
-					// If the aspect ratio is 16:9, use it as cover art.
-					if (width / height == 16 / 9) {
-						
-						coverArt.put(entryGenre, url);
-						
-						break;
-					}
-				}
-			}
+			return "error";
 		}
 		
+		// The genre overview is shown until the visitor narrows the page down or sorts it.
+		final boolean filtered = query.hasGenres() || query.hasYears() || query.sort() != CatalogueQuery.Sort.CATALOGUE;
+		
 		model.addAttribute("start", start);
 		model.addAttribute("end", end);
-		model.addAttribute("genre", genre);
+		model.addAttribute("genre", query.hasGenres() ? String.join(",", query.genres()) : "all");
+		model.addAttribute("filtered", filtered);
 		
 		model.addAttribute("entries", entries);
-		model.addAttribute("genres", genres);
-		model.addAttribute("coverArt", coverArt);
+		
+		// The genre counts are counted once per catalogue and range, and the cover art is picked when the catalogue is built.
+		if (!filtered) {
+			
+			model.addAttribute("genres", catalogue.countGenres(start, end, type));
+			model.addAttribute("coverArt", catalogue.getGenreArt()); // The images to use as cover art for each genre. (Genre -> Images)
+		}
 		
 		return "index";
 	}
 	
+	@GetMapping("/search")
+	public String search(Model model, ServletWebRequest request,
+	                     @RequestParam(value = "q", defaultValue = "") String query
+	) {
+		
+		Catalogue catalogue = ActiveCatalogue.get();
+		
+		if (HttpCaching.checkNotModified(request, catalogue.getVersion(), catalogue.getLastModified(), query))
+			return null;
+		
+		model.addAttribute("query", query);
+		model.addAttribute("entries", catalogue.search(query, MAX_SEARCH_RESULTS));
+		
+		return "search";
+	}
+	
 	@GetMapping("/entry/{id}")
-	public String entry(Model model,
+	public String entry(Model model, ServletWebRequest request,
 	                    @PathVariable(value = "id") String id
 	) {
 		
-		Entry entry = WEXOApplication.getRestInstance().getEntry(id);
+		Catalogue catalogue = ActiveCatalogue.get();
+		Entry entry = catalogue.getEntry(id);
+		
+		// Key the page to the entry itself, so it stays cached across refreshes that didn't touch it.
+		if (HttpCaching.checkNotModified(request, entry == null ? catalogue.getVersion() : entry.getContentHash(), catalogue.getLastModified(), id))
+			return null;
 		
 		if (entry == null) {
 			
@@ -0,0 +1,75 @@
+package me.casper.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class VirtualThreadsTests {
+	
+	@Test
+	void supportedFromJava21() {
+		
+		assertThat(VirtualThreads.isSupported()).isEqualTo(Runtime.version().feature() >= 21);
+	}
+	
+	@Test
+	void refusesWithoutVirtualThreads() {
+		
+		assumeFalse(VirtualThreads.isSupported(), "The JVM has virtual threads");
+		
+		assertThatThrownBy(() -> VirtualThreads.factory("test-")).isInstanceOf(UnsupportedOperationException.class);
+		assertThatThrownBy(() -> VirtualThreads.newPerTaskExecutor("test-")).isInstanceOf(UnsupportedOperationException.class);
+	}
+	
+	@Test
+	void factoryCreatesNamedVirtualThreads() throws Exception {
+		
+		assumeTrue(VirtualThreads.isSupported(), "Virtual threads need Java 21 or newer");
+		
+		ThreadFactory factory = VirtualThreads.factory("test-");
+		
+		Thread first = factory.newThread(() -> {});
+		Thread second = factory.newThread(() -> {});
+		
+		assertThat(first.getName()).isEqualTo("test-0");
+		assertThat(second.getName()).isEqualTo("test-1");
+		assertThat(isVirtual(first)).isTrue();
+		assertThat(first.isDaemon()).isTrue();
+	}
+	
+	@Test
+	void executorRunsEveryTaskOnItsOwnVirtualThread() throws Exception {
+		
+		assumeTrue(VirtualThreads.isSupported(), "Virtual threads need Java 21 or newer");
+		
+		ExecutorService executor = VirtualThreads.newPerTaskExecutor("test-");
+		
+		try {
+			
+			CompletableFuture<Thread> first = CompletableFuture.supplyAsync(Thread::currentThread, executor);
+			CompletableFuture<Thread> second = CompletableFuture.supplyAsync(Thread::currentThread, executor);
+			
+			assertThat(isVirtual(first.get(10, TimeUnit.SECONDS))).isTrue();
+			assertThat(first.get()).isNotSameAs(second.get(10, TimeUnit.SECONDS));
+			
+		} finally {
+			
+			executor.shutdown();
+		}
+		
+		assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+	}
+	
+	static boolean isVirtual(Thread thread) throws ReflectiveOperationException {
+		
+		return (boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+	}
+}
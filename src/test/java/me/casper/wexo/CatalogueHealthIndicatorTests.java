@@ -0,0 +1,118 @@
+package me.casper.wexo;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import me.casper.wexo.api.Entry;
+import me.casper.wexo.api.FetchEngine;
+import me.casper.wexo.api.REST;
+import me.casper.wexo.api.TestEntries;
+import me.casper.wexo.api.TestFeed;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalManagementPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "management.server.port=0")
+class CatalogueHealthIndicatorTests {
+	
+	@TempDir
+	Path directory;
+	
+	@LocalManagementPort
+	private int managementPort;
+	
+	private final HttpClient client = HttpClient.newHttpClient();
+	
+	@AfterEach
+	void stop() {
+		
+		TestCatalogues.stopServing();
+	}
+	
+	@Test
+	void notReadyWithoutACatalogue() throws Exception {
+		
+		HttpResponse<String> response = readiness();
+		
+		assertThat(response.statusCode()).isEqualTo(503);
+		assertThat(state(response)).isEqualTo("empty");
+	}
+	
+	@Test
+	void coldStartIsPartialUntilEveryRangeIsIn() throws Exception {
+		
+		try (TestFeed feed = new TestFeed(entries(1_200))) {
+			
+			// The second range is held back, so the first one is served on its own for a while.
+			feed.hold(1_000);
+			
+			REST rest = new REST(directory.resolve("cache.json").toString(), new FetchEngine(2), feed.getUrl(), 2_000);
+			
+			TestCatalogues.serve(rest);
+			
+			CompletableFuture<REST.Delta> refresh = CompletableFuture.supplyAsync(rest::fetchAll);
+			
+			for (int i = 0; i < 500 && rest.getCatalogue().size() == 0; i++)
+				Thread.sleep(10);
+			
+			HttpResponse<String> partial = readiness();
+			
+			assertThat(partial.statusCode()).isEqualTo(200);
+			assertThat(state(partial)).isEqualTo("partial");
+			assertThat(details(partial).get("size").getAsInt()).isEqualTo(1_000);
+			
+			feed.release();
+			
+			assertThat(refresh.get(30, TimeUnit.SECONDS).complete()).isTrue();
+			
+			HttpResponse<String> complete = readiness();
+			
+			assertThat(complete.statusCode()).isEqualTo(200);
+			assertThat(state(complete)).isEqualTo("complete");
+			assertThat(details(complete).get("size").getAsInt()).isEqualTo(1_200);
+		}
+	}
+	
+	private HttpResponse<String> readiness() throws Exception {
+		
+		HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + managementPort + "/actuator/health/readiness")).build();
+		
+		return client.send(request, HttpResponse.BodyHandlers.ofString());
+	}
+	
+	private static JsonObject details(HttpResponse<String> response) {
+		
+		return JsonParser.parseString(response.body()).getAsJsonObject()
+				.getAsJsonObject("components")
+				.getAsJsonObject("catalogue")
+				.getAsJsonObject("details");
+	}
+	
+	private static String state(HttpResponse<String> response) {
+		
+		return details(response).get("state").getAsString();
+	}
+	
+	private static List<Entry> entries(int size) {
+		
+		ArrayList<Entry> entries = new ArrayList<>(size);
+		
+		for (int i = 0; i < size; i++)
+			entries.add(TestEntries.entry("id" + i, "Titel " + i, 2000, "Drama"));
+		
+		return entries;
+	}
+}
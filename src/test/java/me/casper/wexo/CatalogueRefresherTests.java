@@ -0,0 +1,193 @@
+package me.casper.wexo;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import me.casper.wexo.api.Catalogue;
+import me.casper.wexo.api.CatalogueSnapshot;
+import me.casper.wexo.api.Entry;
+import me.casper.wexo.api.REST;
+import me.casper.wexo.api.SnapshotClient;
+import me.casper.wexo.api.TestEntries;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CatalogueRefresherTests {
+	
+	@TempDir
+	Path directory;
+	
+	@Test
+	void backoffDoublesWithEveryFailureUpToTheMax() {
+		
+		WexoProperties properties = new WexoProperties();
+		
+		properties.getRefresh().setInitialBackoff(Duration.ofSeconds(30));
+		properties.getRefresh().setMaxBackoff(Duration.ofMinutes(15));
+		
+		CatalogueRefresher refresher = new CatalogueRefresher(properties);
+		
+		for (int failures = 1; failures <= 100; failures++) {
+			
+			final long full = Math.min(Duration.ofMinutes(15).toMillis(), Duration.ofSeconds(30).toMillis() << Math.min(failures - 1, 30));
+			
+			// Jittered between half and all of the backoff.
+			for (int i = 0; i < 100; i++)
+				assertThat(refresher.backoff(failures)).isBetween(full / 2, full);
+		}
+	}
+	
+	@Test
+	void backoffIsJittered() {
+		
+		CatalogueRefresher refresher = new CatalogueRefresher(new WexoProperties());
+		
+		long first = refresher.backoff(3);
+		boolean varied = false;
+		
+		for (int i = 0; i < 100 && !varied; i++)
+			varied = refresher.backoff(3) != first;
+		
+		assertThat(varied).isTrue();
+	}
+	
+	@Test
+	void refreshNowIsRejectedUntilStarted() {
+		
+		CatalogueRefresher refresher = new CatalogueRefresher(new WexoProperties());
+		
+		assertThat(refresher.refreshNow()).isFalse();
+		assertThat(refresher.getNextRefresh()).isZero();
+	}
+	
+	@Test
+	void followerPullsTheCatalogueOfTheLeaderWhenItChanges() throws Exception {
+		
+		Leader leader = new Leader(entries("Første", 30));
+		
+		WexoProperties properties = new WexoProperties();
+		
+		properties.setCachePath(directory.resolve("cache.json").toString());
+		properties.getCluster().setLeaderUrl("http://localhost:" + leader.server.getAddress().getPort());
+		properties.getCluster().setPollInterval(Duration.ofMillis(50));
+		
+		CatalogueRefresher refresher = new CatalogueRefresher(properties);
+		
+		try {
+			
+			refresher.start();
+			
+			REST rest = WEXOApplication.getRestInstance();
+			
+			await(() -> rest.getCatalogue().size() == 30);
+			
+			assertThat(rest.getCatalogue().getEntries()).isEqualTo(leader.entries);
+			
+			// An unchanged leader only answers 304s.
+			await(() -> leader.notModified.get() >= 3);
+			
+			assertThat(leader.fetched.get()).isEqualTo(1);
+			
+			leader.entries = entries("Anden", 20);
+			
+			await(() -> rest.getCatalogue().size() == 20);
+			
+			assertThat(rest.getCatalogue().getEntry("id0").getTitle()).isEqualTo("Anden 0");
+			assertThat(leader.fetched.get()).isEqualTo(2);
+			assertThat(refresher.getFailures()).isZero();
+			
+		} finally {
+			
+			refresher.stop();
+			leader.server.stop(0);
+			
+			WEXOApplication.setRestInstance(null);
+		}
+	}
+	
+	private static void await(BooleanSupplier condition) throws InterruptedException {
+		
+		for (int i = 0; i < 1_000 && !condition.getAsBoolean(); i++)
+			Thread.sleep(10);
+		
+		assertThat(condition.getAsBoolean()).isTrue();
+	}
+	
+	private static List<Entry> entries(String title, int size) {
+		
+		ArrayList<Entry> entries = new ArrayList<>();
+		
+		for (int i = 0; i < size; i++)
+			entries.add(TestEntries.entry("id" + i, title + " " + i, 2000 + i, "Drama"));
+		
+		return entries;
+	}
+	
+	/**
+	 * Serves snapshots the way the snapshot endpoint of a leader does.
+	 */
+	private static final class Leader {
+		
+		private final HttpServer server;
+		
+		private volatile List<Entry> entries;
+		
+		private final AtomicInteger fetched = new AtomicInteger();
+		private final AtomicInteger notModified = new AtomicInteger();
+		
+		private Leader(List<Entry> entries) throws IOException {
+			
+			this.entries = entries;
+			
+			server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+			server.createContext(SnapshotClient.PATH, this::handle);
+			server.start();
+		}
+		
+		private void handle(HttpExchange exchange) throws IOException {
+			
+			try (exchange) {
+				
+				List<Entry> entries = this.entries;
+				
+				String etag = SnapshotClient.etag(new Catalogue(entries, 0).getVersion());
+				
+				exchange.getResponseHeaders().set("ETag", etag);
+				
+				if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+					
+					notModified.incrementAndGet();
+					
+					exchange.sendResponseHeaders(304, -1);
+					
+					return;
+				}
+				
+				fetched.incrementAndGet();
+				
+				ByteArrayOutputStream body = new ByteArrayOutputStream();
+				
+				CatalogueSnapshot.write(body, 1234L, entries);
+				
+				exchange.sendResponseHeaders(200, body.size());
+				
+				try (OutputStream output = exchange.getResponseBody()) {
+					
+					body.writeTo(output);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,140 @@
+package me.casper.wexo;
+
+import me.casper.wexo.api.Catalogue;
+import me.casper.wexo.api.CatalogueSnapshot;
+import me.casper.wexo.api.Entry;
+import me.casper.wexo.api.FetchEngine;
+import me.casper.wexo.api.REST;
+import me.casper.wexo.api.SnapshotClient;
+import me.casper.wexo.api.TestEntries;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalManagementPort;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Pulls the catalogue of a leader the way a follower does, from the management port.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "management.server.port=0")
+class SnapshotEndpointTests {
+	
+	@TempDir
+	Path directory;
+	
+	@LocalServerPort
+	private int port;
+	
+	@LocalManagementPort
+	private int managementPort;
+	
+	private SnapshotClient client;
+	private REST follower;
+	
+	@BeforeEach
+	void start() {
+		
+		client = new SnapshotClient("http://localhost:" + managementPort + "/");
+		follower = new REST(directory.resolve("follower.json").toString(), new FetchEngine(1));
+	}
+	
+	@AfterEach
+	void stop() {
+		
+		client.shutdown();
+		follower.shutdown();
+		
+		TestCatalogues.stopServing();
+	}
+	
+	@Test
+	void nothingToPullWithoutACatalogue() throws Exception {
+		
+		assertThat(client.fetch(Catalogue.EMPTY.getVersion())).isNull();
+	}
+	
+	@Test
+	void followerTakesOverTheCatalogueOfTheLeader() throws Exception {
+		
+		REST leader = TestCatalogues.serve(directory, entries("Første", 50));
+		
+		CatalogueSnapshot snapshot = client.fetch(follower.getCatalogue().getVersion());
+		
+		assertThat(snapshot).isNotNull();
+		assertThat(snapshot.getLastUpdated()).isEqualTo(leader.getCatalogue().getLastModified());
+		
+		follower.replace(snapshot.getEntries(), snapshot.getLastUpdated());
+		follower.publish();
+		
+		assertThat(follower.getCatalogue().getEntries()).isEqualTo(leader.getCatalogue().getEntries());
+		assertThat(follower.getCatalogue().getVersion()).isEqualTo(leader.getCatalogue().getVersion());
+		
+		// The follower has the same version now, so the leader only answers 304.
+		assertThat(client.fetch(follower.getCatalogue().getVersion())).isNull();
+		
+		// Until the leader refreshes.
+		TestCatalogues.serve(directory, entries("Anden", 40));
+		
+		CatalogueSnapshot refreshed = client.fetch(follower.getCatalogue().getVersion());
+		
+		assertThat(refreshed).isNotNull();
+		assertThat(follower.replace(refreshed.getEntries(), refreshed.getLastUpdated())).isEqualTo(new REST.Delta(0, 40, 10, true));
+		
+		follower.publish();
+		
+		assertThat(follower.getCatalogue().getVersion()).isEqualTo(leader.getCatalogue().getVersion());
+		assertThat(follower.getCatalogue().getEntry("id0").getTitle()).isEqualTo("Anden 0");
+	}
+	
+	@Test
+	void servedWithoutGzipToo() throws Exception {
+		
+		REST leader = TestCatalogues.serve(directory, entries("Første", 10));
+		
+		HttpResponse<byte[]> response = get(managementPort, SnapshotClient.PATH);
+		
+		assertThat(response.statusCode()).isEqualTo(200);
+		assertThat(response.headers().firstValue("Content-Encoding")).isEmpty();
+		assertThat(response.headers().firstValue("ETag")).contains(SnapshotClient.etag(leader.getCatalogue().getVersion()));
+		assertThat(CatalogueSnapshot.read(ByteBuffer.wrap(response.body())).getEntries()).isEqualTo(leader.getCatalogue().getEntries());
+	}
+	
+	@Test
+	void notServedOnTheWebPort() throws Exception {
+		
+		TestCatalogues.serve(directory, entries("Første", 10));
+		
+		assertThat(get(port, SnapshotClient.PATH).statusCode()).isEqualTo(404);
+		assertThat(get(port, "/api/snapshot").statusCode()).isEqualTo(404);
+	}
+	
+	private static HttpResponse<byte[]> get(int port, String path) throws Exception {
+		
+		HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).build();
+		
+		return HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofByteArray());
+	}
+	
+	private static List<Entry> entries(String title, int size) {
+		
+		ArrayList<Entry> entries = new ArrayList<>();
+		
+		for (int i = 0; i < size; i++)
+			entries.add(TestEntries.entry("id" + i, title + " " + i, 2000 + i, "Drama"));
+		
+		return entries;
+	}
+}
@@ -0,0 +1,57 @@
+package me.casper.wexo;
+
+import me.casper.wexo.api.Entry;
+import me.casper.wexo.api.FetchEngine;
+import me.casper.wexo.api.REST;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Serves a given catalogue to the controllers, as if it had been loaded by the refresher.
+ */
+public final class TestCatalogues {
+	
+	private TestCatalogues() {
+	}
+	
+	/**
+	 * Starts serving the entries, or replaces the entries being served.
+	 *
+	 * @param directory A directory the cache can be kept in.
+	 * @return The instance serving the entries.
+	 */
+	public static REST serve(Path directory, List<Entry> entries) {
+		
+		REST rest = WEXOApplication.getRestInstance();
+		
+		if (rest == null) {
+			
+			rest = new REST(directory.resolve("cache.json").toString(), new FetchEngine(1));
+			
+			WEXOApplication.setRestInstance(rest);
+		}
+		
+		rest.replace(entries, System.currentTimeMillis());
+		rest.publish();
+		
+		return rest;
+	}
+	
+	/**
+	 * Starts serving an instance, which can be filled in afterwards.
+	 */
+	public static void serve(REST rest) {
+		
+		WEXOApplication.setRestInstance(rest);
+	}
+	
+	public static void stopServing() {
+		
+		REST rest = WEXOApplication.getRestInstance();
+		
+		WEXOApplication.setRestInstance(null);
+		
+		if (rest != null) rest.shutdown();
+	}
+}
@@ -0,0 +1,54 @@
+package me.casper.wexo;
+
+import me.casper.util.VirtualThreads;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.http.HttpStatus;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = { "wexo.virtual-threads=true", "management.server.port=0" })
+class VirtualThreadConfigTests {
+	
+	@Autowired
+	private ServletWebServerApplicationContext context;
+	
+	@Autowired
+	private TestRestTemplate rest;
+	
+	@Test
+	void requestsRunOnVirtualThreadsWhereSupported() throws Exception {
+		
+		Executor executor = ((TomcatWebServer) context.getWebServer()).getTomcat().getConnector().getProtocolHandler().getExecutor();
+		
+		if (!VirtualThreads.isSupported()) {
+			
+			// Falls back to Tomcat's own worker pool.
+			assertThat(executor).isInstanceOf(org.apache.tomcat.util.threads.ThreadPoolExecutor.class);
+			
+			return;
+		}
+		
+		assertThat(executor).isNotInstanceOf(ThreadPoolExecutor.class).isNotInstanceOf(org.apache.tomcat.util.threads.ThreadPoolExecutor.class);
+		
+		CompletableFuture<Thread> thread = CompletableFuture.supplyAsync(Thread::currentThread, executor);
+		
+		assertThat((boolean) Thread.class.getMethod("isVirtual").invoke(thread.get(10, TimeUnit.SECONDS))).isTrue();
+	}
+	
+	@Test
+	void servesRequestsEitherWay() {
+		
+		// There is no catalogue in the tests, so a page that gets through the whole stack answers 503.
+		assertThat(rest.getForEntity("/", String.class).getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+	}
+}
@@ -0,0 +1,138 @@
+package me.casper.wexo.api;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static me.casper.wexo.api.TestEntries.entry;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AutocompleteTests {
+	
+	private final Autocomplete autocomplete = new Autocomplete(List.of(
+			entry("1", "Den store flugt", "", "movie", 1963, List.of("Action"), List.of("Steve McQueen"), List.of("John Sturges")),
+			entry("2", "Den skaldede frisør", "", "movie", 2012, List.of("Drama"), List.of("Trine Dyrholm"), List.of("Susanne Bier")),
+			entry("3", "Efter brylluppet", "", "movie", 2006, List.of("Drama"), List.of("Mads Mikkelsen"), List.of("Susanne Bier")),
+			entry("4", "Æblegrød", "", "movie", 1999, List.of("Familie"), List.of("Steve Øster"), List.of("Ukendt")),
+			entry("5", "Drengen der ville gøre det umulige", "", "movie", 2002, List.of("Familie"), List.of("Trine Dyrholm"), List.of("Jacob Grønlykke"))
+	));
+	
+	@Test
+	void suggestsTitlesAndPeopleStartingWithThePrefix() {
+		
+		assertThat(labels("den s")).containsExactly("Den skaldede frisør", "Den store flugt");
+		assertThat(labels("su")).containsExactly("Susanne Bier");
+		assertThat(labels("steve")).containsExactly("Steve Øster", "Steve McQueen");
+	}
+	
+	@Test
+	void mostRecentComesFirst() {
+		
+		// Susanne Bier's most recent entry is from 2012, Steve McQueen's from 1963.
+		assertThat(labels("s")).containsExactly("Susanne Bier", "Steve Øster", "Steve McQueen");
+		assertThat(labels("d")).containsExactly("Den skaldede frisør", "Drengen der ville gøre det umulige", "Den store flugt");
+	}
+	
+	@Test
+	void ignoresCaseAccentsAndPunctuation() {
+		
+		assertThat(labels("ÆBLE")).containsExactly("Æblegrød");
+		assertThat(labels("æblegrod")).isEmpty();
+		assertThat(labels("  trine-dyr")).containsExactly("Trine Dyrholm");
+	}
+	
+	@Test
+	void prefixEndingInASingleAMayBeTheStartOfAnÅ() {
+		
+		Autocomplete cars = new Autocomplete(List.of(entry("1", "Saab 900", 1990, "Dokumentar"), entry("2", "Sahara", 2005, "Eventyr")));
+		
+		int[] results = new int[Autocomplete.MAX_SUGGESTIONS];
+		
+		assertThat(cars.complete("sa", results)).isEqualTo(2);
+		assertThat(cars.getLabel(results[0])).isEqualTo("Sahara");
+		assertThat(cars.getLabel(results[1])).isEqualTo("Saab 900");
+		
+		assertThat(cars.complete("saa", results)).isEqualTo(1);
+		assertThat(cars.getLabel(results[0])).isEqualTo("Saab 900");
+	}
+	
+	@Test
+	void titlesLinkToTheirEntry() {
+		
+		int[] results = new int[Autocomplete.MAX_SUGGESTIONS];
+		
+		assertThat(autocomplete.complete("efter", results)).isEqualTo(1);
+		assertThat(autocomplete.getKind(results[0])).isEqualTo(Autocomplete.TITLE);
+		assertThat(autocomplete.getId(results[0])).isEqualTo("3");
+		
+		assertThat(autocomplete.complete("mads", results)).isEqualTo(1);
+		assertThat(autocomplete.getKind(results[0])).isEqualTo(Autocomplete.PERSON);
+		assertThat(autocomplete.getId(results[0])).isNull();
+	}
+	
+	@Test
+	void respectsTheLimit() {
+		
+		assertThat(autocomplete.complete("", new int[10])).isZero();
+		assertThat(autocomplete.complete("s", new int[2])).isEqualTo(2);
+		assertThat(autocomplete.complete("s", new int[0])).isZero();
+	}
+	
+	@Test
+	void returnsTheMostRecentOfManySuggestions() {
+		
+		ArrayList<Entry> entries = new ArrayList<>();
+		
+		for (int i = 0; i < 1_000; i++)
+			entries.add(entry("id" + i, "Titel " + i, 1900 + i % 100, "Drama"));
+		
+		Autocomplete large = new Autocomplete(entries);
+		
+		int[] results = new int[Autocomplete.MAX_SUGGESTIONS + 5];
+		
+		assertThat(large.complete("titel", results)).isEqualTo(Autocomplete.MAX_SUGGESTIONS);
+		
+		// Ten titles per year, the twenty most recent are the titles from 1999 and 1998, alphabetically within a year.
+		for (int i = 0; i < Autocomplete.MAX_SUGGESTIONS; i++) {
+			
+			final int year = Integer.parseInt(large.getLabel(results[i]).substring("Titel ".length())) % 100 + 1900;
+			
+			assertThat(year).isEqualTo(i < 10 ? 1999 : 1998);
+		}
+	}
+	
+	@Test
+	void lookupsDoNotAllocate() {
+		
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		
+		int[] results = new int[Autocomplete.MAX_SUGGESTIONS];
+		String[] prefixes = {"s", "den s", "  trine-dyr", "sa", "æble", "x"};
+		
+		// The first lookup of a thread creates its buffers.
+		autocomplete.complete("s", results);
+		
+		final long before = threads.getCurrentThreadAllocatedBytes();
+		
+		for (int i = 0; i < 1_000; i++)
+			autocomplete.complete(prefixes[i % prefixes.length], results);
+		
+		// Leave room for the bookkeeping of the measurement itself, which is far less than a byte per lookup.
+		assertThat(threads.getCurrentThreadAllocatedBytes() - before).isLessThan(1_000);
+	}
+	
+	private List<String> labels(String prefix) {
+		
+		int[] results = new int[Autocomplete.MAX_SUGGESTIONS];
+		final int count = autocomplete.complete(prefix, results);
+		
+		ArrayList<String> labels = new ArrayList<>();
+		
+		for (int i = 0; i < count; i++)
+			labels.add(autocomplete.getLabel(results[i]));
+		
+		return labels;
+	}
+}
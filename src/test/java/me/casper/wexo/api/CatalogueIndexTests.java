@@ -0,0 +1,218 @@
+package me.casper.wexo.api;
+
+import org.junit.jupiter.api.Test;
+
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+import static me.casper.wexo.api.TestEntries.entry;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CatalogueIndexTests {
+	
+	private static final int SIZE = 300;
+	private static final String[] TITLES = { "Æblet", "Øen", "Ål", "Aalborg", "Zebra", "abe", "Bjørn", "Året", "Ødemark", "Bjørn" };
+	
+	private final List<Entry> entries = entries();
+	private final CatalogueIndex index = new CatalogueIndex(entries);
+	private final Catalogue catalogue = new Catalogue(entries, 0);
+	
+	@Test
+	void filtersByGenresTypeAndYears() {
+		
+		assertThat(index.query(query(List.of("Drama"), false, "all", CatalogueQuery.Sort.CATALOGUE)))
+				.isEqualTo(expected(i -> i % 2 == 0));
+		
+		assertThat(index.query(query(List.of("Drama", "Action"), false, "all", CatalogueQuery.Sort.CATALOGUE)))
+				.isEqualTo(expected(i -> i % 2 == 0 || i % 3 == 0));
+		
+		assertThat(index.query(query(List.of("Drama", "Action"), true, "all", CatalogueQuery.Sort.CATALOGUE)))
+				.isEqualTo(expected(i -> i % 6 == 0));
+		
+		assertThat(index.query(query(List.of("Drama", "Ukendt"), true, "all", CatalogueQuery.Sort.CATALOGUE)).isEmpty()).isTrue();
+		
+		assertThat(index.query(query(List.of("all"), false, "SERIES", CatalogueQuery.Sort.CATALOGUE)))
+				.isEqualTo(expected(i -> i % 5 == 0));
+		
+		CatalogueQuery years = new CatalogueQuery(10, 250, List.of("Action"), false, "movie", 2003, 2005, CatalogueQuery.Sort.CATALOGUE);
+		
+		assertThat(index.query(years))
+				.isEqualTo(expected(i -> i >= 10 && i < 250 && i % 3 == 0 && i % 5 != 0 && year(i) >= 2003 && year(i) <= 2005));
+	}
+	
+	@Test
+	void catalogueOrderHasNoSortedIndex() {
+		
+		CatalogueQuery query = query(List.of(), false, "all", CatalogueQuery.Sort.CATALOGUE);
+		
+		assertThat(index.order(index.query(query), query)).isNull();
+		assertThat(ids(query)).isEqualTo(reference(query));
+	}
+	
+	@Test
+	void fewMatchesSortTheirRanks() {
+		
+		for (CatalogueQuery.Sort sort : sorts()) {
+			
+			CatalogueQuery query = query(List.of("Sjælden"), false, "all", sort);
+			BitSet matches = index.query(query);
+			
+			CatalogueIndex.Order order = index.order(matches, query);
+			
+			// Only the matches themselves are sorted.
+			assertThat(order.positions()).hasSize(matches.cardinality());
+			assertThat(order.descending()).isEqualTo(sort.isDescending());
+			assertThat(ids(query)).isEqualTo(reference(query)).isNotEmpty();
+		}
+	}
+	
+	@Test
+	void manyMatchesWalkTheWholeIndex() {
+		
+		for (CatalogueQuery.Sort sort : sorts()) {
+			
+			CatalogueQuery query = query(List.of("Drama"), false, "all", sort);
+			
+			CatalogueIndex.Order order = index.order(index.query(query), query);
+			
+			assertThat(order.positions()).hasSize(SIZE);
+			assertThat(order.from()).isZero();
+			assertThat(order.to()).isEqualTo(SIZE);
+			assertThat(ids(query)).isEqualTo(reference(query));
+		}
+	}
+	
+	@Test
+	void yearRangesWalkTheirSlice() {
+		
+		for (CatalogueQuery.Sort sort : List.of(CatalogueQuery.Sort.YEAR, CatalogueQuery.Sort.YEAR_DESC)) {
+			
+			CatalogueQuery query = new CatalogueQuery(0, SIZE, List.of(), false, "all", 2004, 2005, sort);
+			
+			CatalogueIndex.Order order = index.order(index.query(query), query);
+			
+			// Only the entries from 2004 and 2005 are walked.
+			assertThat(order.positions()).hasSize(SIZE);
+			assertThat(order.to() - order.from()).isEqualTo(expected(i -> year(i) == 2004 || year(i) == 2005).cardinality());
+			assertThat(ids(query)).isEqualTo(reference(query));
+		}
+	}
+	
+	@Test
+	void everyQueryMatchesTheReference() {
+		
+		List<List<String>> genres = List.of(List.of(), List.of("Drama"), List.of("Drama", "Action"), List.of("Sjælden"), List.of("Ukendt"));
+		
+		for (CatalogueQuery.Sort sort : CatalogueQuery.Sort.values())
+			for (List<String> genre : genres)
+				for (boolean matchAll : new boolean[] { false, true })
+					for (String type : List.of("all", "movie", "series"))
+						for (int[] years : new int[][] { { Integer.MIN_VALUE, Integer.MAX_VALUE }, { 2002, 2002 }, { 2001, 2010 }, { 2020, 2030 } }) {
+							
+							CatalogueQuery query = new CatalogueQuery(20, 280, genre, matchAll, type, years[0], years[1], sort);
+							
+							assertThat(ids(query)).as(query.toString()).isEqualTo(reference(query));
+						}
+	}
+	
+	private List<String> ids(CatalogueQuery query) {
+		
+		ArrayList<String> ids = new ArrayList<>();
+		
+		for (Entry entry : catalogue.query(query))
+			ids.add(entry.getId());
+		
+		return ids;
+	}
+	
+	/**
+	 * Filters and sorts the entries one by one, the way the index is supposed to.
+	 */
+	private List<String> reference(CatalogueQuery query) {
+		
+		Collator collator = Collator.getInstance(Locale.forLanguageTag("da-DK"));
+		
+		Comparator<Integer> order = switch (query.sort()) {
+			
+			case CATALOGUE -> Comparator.naturalOrder();
+			case YEAR, YEAR_DESC -> Comparator.<Integer>comparingInt(i -> entries.get(i).getReleaseYear()).thenComparing(Comparator.naturalOrder());
+			case TITLE, TITLE_DESC -> Comparator.<Integer, String>comparing(i -> entries.get(i).getTitle(), collator).thenComparing(Comparator.naturalOrder());
+		};
+		
+		List<Integer> positions = IntStream.range(Math.max(query.from(), 0), Math.min(query.to(), SIZE))
+				.boxed()
+				.filter(i -> matches(entries.get(i), query))
+				.sorted(order)
+				.collect(ArrayList::new, ArrayList::add, ArrayList::addAll);
+		
+		if (query.sort().isDescending()) Collections.reverse(positions);
+		
+		return positions.stream().map(i -> entries.get(i).getId()).toList();
+	}
+	
+	private static boolean matches(Entry entry, CatalogueQuery query) {
+		
+		if (!query.type().equalsIgnoreCase("all") && !entry.getProgramType().equalsIgnoreCase(query.type())) return false;
+		if (entry.getReleaseYear() < query.fromYear() || entry.getReleaseYear() > query.toYear()) return false;
+		
+		if (!query.hasGenres()) return true;
+		
+		return query.matchAll() ? entry.getGenres().containsAll(query.genres()) : query.genres().stream().anyMatch(entry.getGenres()::contains);
+	}
+	
+	private static CatalogueQuery query(List<String> genres, boolean matchAll, String type, CatalogueQuery.Sort sort) {
+		
+		return new CatalogueQuery(0, SIZE, genres, matchAll, type, Integer.MIN_VALUE, Integer.MAX_VALUE, sort);
+	}
+	
+	private static List<CatalogueQuery.Sort> sorts() {
+		
+		return List.of(CatalogueQuery.Sort.YEAR, CatalogueQuery.Sort.YEAR_DESC, CatalogueQuery.Sort.TITLE, CatalogueQuery.Sort.TITLE_DESC);
+	}
+	
+	private static BitSet expected(IntPredicate matches) {
+		
+		BitSet positions = new BitSet(SIZE);
+		
+		for (int i = 0; i < SIZE; i++)
+			if (matches.test(i)) positions.set(i);
+		
+		return positions;
+	}
+	
+	private static int year(int i) {
+		
+		return 2000 + i * 7 % 11;
+	}
+	
+	/**
+	 * Every second entry is a drama, every third an action movie, every fifth a series, and a few are rare.
+	 * Titles and years repeat, so ties have to keep catalogue order.
+	 */
+	private static List<Entry> entries() {
+		
+		ArrayList<Entry> entries = new ArrayList<>();
+		
+		for (int i = 0; i < SIZE; i++) {
+			
+			ArrayList<String> genres = new ArrayList<>();
+			
+			if (i % 2 == 0) genres.add("Drama");
+			if (i % 3 == 0) genres.add("Action");
+			if (i % 97 == 1) genres.add("Sjælden");
+			
+			String title = TITLES[i * 3 % TITLES.length] + " " + i % 4;
+			
+			entries.add(entry("id" + i, title, "", i % 5 == 0 ? "series" : "movie", year(i), genres, List.of(), List.of()));
+		}
+		
+		return entries;
+	}
+}
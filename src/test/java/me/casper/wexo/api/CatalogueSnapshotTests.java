@@ -0,0 +1,108 @@
+package me.casper.wexo.api;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CatalogueSnapshotTests {
+	
+	private static final List<Entry> ENTRIES = List.of(
+			TestEntries.entry("a", "Første film", 2001, "Drama", "Action"),
+			TestEntries.entry("b", "Anden film", 2002, "Drama"),
+			TestEntries.entry("c", "Æblets hævn", "", "series", 0, List.of(), List.of(), List.of()));
+	
+	@TempDir
+	Path directory;
+	
+	@Test
+	void roundTripsEveryField() throws IOException {
+		
+		CatalogueSnapshot snapshot = CatalogueSnapshot.read(ByteBuffer.wrap(write(ENTRIES)));
+		
+		assertThat(snapshot.getLastUpdated()).isEqualTo(1234L);
+		assertThat(snapshot.getEntries()).isEqualTo(ENTRIES);
+		
+		Entry entry = snapshot.getEntries().get(0);
+		
+		assertThat(entry.getCovers()).isEqualTo(ENTRIES.get(0).getCovers());
+		assertThat(entry.getBackdrops()).isEqualTo(ENTRIES.get(0).getBackdrops());
+		assertThat(entry.getTrailers()).isEqualTo(ENTRIES.get(0).getTrailers());
+	}
+	
+	@Test
+	void roundTripsThroughAFile() throws IOException {
+		
+		Path path = directory.resolve("cache.json.bin");
+		
+		Files.write(path, write(ENTRIES));
+		
+		assertThat(CatalogueSnapshot.read(path).getEntries()).isEqualTo(ENTRIES);
+	}
+	
+	@Test
+	void roundTripsAnEmptyCatalogue() throws IOException {
+		
+		assertThat(CatalogueSnapshot.read(ByteBuffer.wrap(write(List.of()))).getEntries()).isEmpty();
+	}
+	
+	@Test
+	void rejectsTruncatedSnapshots() throws IOException {
+		
+		byte[] snapshot = write(ENTRIES);
+		
+		for (int length : new int[] { 0, 10, 23, 24, snapshot.length / 2, snapshot.length - 1 })
+			assertThatThrownBy(() -> CatalogueSnapshot.read(ByteBuffer.wrap(Arrays.copyOf(snapshot, length))))
+					.isInstanceOf(IOException.class);
+		
+		Path path = directory.resolve("cache.json.bin");
+		
+		Files.write(path, Arrays.copyOf(snapshot, 12));
+		
+		assertThatThrownBy(() -> CatalogueSnapshot.read(path)).isInstanceOf(IOException.class);
+	}
+	
+	@Test
+	void rejectsCorruptSnapshots() throws IOException {
+		
+		byte[] snapshot = write(ENTRIES);
+		
+		// Flipping any byte must be caught, whether it's in the header, the strings, the entries or the checksum.
+		for (int i = 0; i < snapshot.length; i += 7) {
+			
+			byte[] corrupt = snapshot.clone();
+			
+			corrupt[i] ^= 0x5A;
+			
+			assertThatThrownBy(() -> CatalogueSnapshot.read(ByteBuffer.wrap(corrupt)))
+					.isInstanceOf(IOException.class)
+					.hasMessageContaining("corrupt");
+		}
+	}
+	
+	@Test
+	void rejectsOtherFiles() {
+		
+		byte[] json = "{\"lastUpdated\":0,\"entries\":[]}".getBytes();
+		
+		assertThatThrownBy(() -> CatalogueSnapshot.read(ByteBuffer.wrap(json))).isInstanceOf(IOException.class);
+	}
+	
+	private static byte[] write(List<Entry> entries) throws IOException {
+		
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		
+		CatalogueSnapshot.write(output, 1234L, entries);
+		
+		return output.toByteArray();
+	}
+}
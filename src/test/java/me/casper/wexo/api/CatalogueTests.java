@@ -0,0 +1,48 @@
+package me.casper.wexo.api;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static me.casper.wexo.api.TestEntries.entry;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CatalogueTests {
+	
+	private final Catalogue catalogue = new Catalogue(List.of(
+			entry("0", "Nul", "", "movie", 2000, List.of("Drama", "Action"), List.of(), List.of()),
+			entry("1", "En", "", "movie", 2001, List.of("Drama"), List.of(), List.of()),
+			entry("2", "To", "", "series", 2002, List.of("Gyser"), List.of(), List.of()),
+			entry("3", "Tre", "", "series", 2003, List.of("Drama", "Gyser"), List.of(), List.of())
+	), 0);
+	
+	@Test
+	void countsGenresInARange() {
+		
+		assertThat(catalogue.countGenres(0, 4, "all")).isEqualTo(Map.of("Drama", 3, "Action", 1, "Gyser", 2));
+		assertThat(catalogue.countGenres(1, 3, "all")).isEqualTo(Map.of("Drama", 1, "Gyser", 1));
+		assertThat(catalogue.countGenres(0, 4, "series")).isEqualTo(Map.of("Drama", 1, "Gyser", 2));
+		assertThat(catalogue.countGenres(0, 4, "Series")).isEqualTo(Map.of("Drama", 1, "Gyser", 2));
+		assertThat(catalogue.countGenres(3, 2, "all")).isEmpty();
+	}
+	
+	@Test
+	void genreCountsAreCountedOncePerRange() {
+		
+		Map<String, Integer> counts = catalogue.countGenres(1, 100, "all");
+		
+		assertThat(catalogue.countGenres(1, 100, "all")).isSameAs(counts);
+		assertThat(catalogue.countGenres(1, 100, "movie")).isNotSameAs(counts);
+		
+		assertThatThrownBy(() -> counts.put("Drama", 0)).isInstanceOf(UnsupportedOperationException.class);
+	}
+	
+	@Test
+	void genreCountsAreStillCorrectOnceTheCacheIsFull() {
+		
+		for (int i = 0; i < 100; i++)
+			assertThat(catalogue.countGenres(0, 4 + i, "all")).isEqualTo(Map.of("Drama", 3, "Action", 1, "Gyser", 2));
+	}
+}
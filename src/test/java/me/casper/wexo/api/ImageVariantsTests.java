@@ -0,0 +1,130 @@
+package me.casper.wexo.api;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ImageVariantsTests {
+	
+	@Test
+	void emptyImagesHaveNoVariants() {
+		
+		ImageVariants variants = ImageVariants.of(ImageSet.EMPTY, ImageSet.EMPTY);
+		
+		assertThat(variants).isSameAs(ImageVariants.EMPTY);
+		assertThat(variants.getCover()).isNull();
+		assertThat(variants.getCoverSrcset()).isNull();
+		assertThat(variants.getTile()).isNull();
+		assertThat(variants.getHero()).isNull();
+		assertThat(variants.getHeroSrcset()).isNull();
+	}
+	
+	@Test
+	void picksTheNarrowestImageCoveringTheSlot() {
+		
+		ImageSet covers = images(600, 900, 100, 150, 300, 450, 250, 375);
+		
+		// 250 is exactly as wide as the slot, so it covers it.
+		assertThat(ImageVariants.of(covers, ImageSet.EMPTY).getCover()).isEqualTo(url(250, 375));
+		
+		ImageSet narrow = images(100, 150, 200, 300);
+		
+		// When nothing covers the slot, the widest image is the best there is.
+		assertThat(ImageVariants.of(narrow, ImageSet.EMPTY).getCover()).isEqualTo(url(200, 300));
+	}
+	
+	@Test
+	void groupsBackdropsByExactAspectRatio() {
+		
+		// 1366x768 is almost 16:9 but not quite, and 2048x1536 is 4:3.
+		ImageSet backdrops = images(3840, 2160, 2048, 1536, 1280, 720, 1366, 768, 1920, 1080);
+		
+		ImageVariants variants = ImageVariants.of(ImageSet.EMPTY, backdrops);
+		
+		assertThat(variants.getTile()).isEqualTo(url(1280, 720));
+		assertThat(variants.getHero()).isEqualTo(url(1920, 1080));
+		assertThat(variants.getTileSrcset()).isEqualTo(url(1280, 720) + " 1280w, " + url(1920, 1080) + " 1920w, " + url(3840, 2160) + " 3840w");
+		assertThat(variants.getHeroSrcset()).isEqualTo(variants.getTileSrcset());
+	}
+	
+	@Test
+	void heroFallsBackToTheShapeOfTheWidestBackdrop() {
+		
+		ImageSet backdrops = images(1024, 768, 2048, 1536, 1366, 768);
+		
+		ImageVariants variants = ImageVariants.of(ImageSet.EMPTY, backdrops);
+		
+		// Without a 16:9 backdrop there is no genre tile, and the entry page uses the 4:3 ones.
+		assertThat(variants.getTile()).isNull();
+		assertThat(variants.getTileSrcset()).isNull();
+		assertThat(variants.getHero()).isEqualTo(url(2048, 1536));
+		assertThat(variants.getHeroSrcset()).isEqualTo(url(1024, 768) + " 1024w, " + url(2048, 1536) + " 2048w");
+	}
+	
+	@Test
+	void coversUseTheShapeOfTheWidestPortrait() {
+		
+		// The square cover is wider, but a portrait is preferred, and 540x810 is 2:3 without being reduced.
+		ImageSet covers = images(1000, 1000, 800, 1200, 540, 810, 400, 600, 300, 400);
+		
+		ImageVariants variants = ImageVariants.of(covers, ImageSet.EMPTY);
+		
+		assertThat(variants.getCover()).isEqualTo(url(400, 600));
+		assertThat(variants.getCoverSrcset()).isEqualTo(url(400, 600) + " 400w, " + url(540, 810) + " 540w, " + url(800, 1200) + " 800w");
+	}
+	
+	@Test
+	void srcsetKeepsOneImagePerWidth() {
+		
+		ImageSet covers = ImageSet.builder()
+				.add("https://images.example.com/a.jpg", 400, 600)
+				.add("https://images.example.com/b.jpg", 400, 600)
+				.add("https://images.example.com/c.jpg", 200, 300)
+				.build();
+		
+		assertThat(ImageVariants.of(covers, ImageSet.EMPTY).getCoverSrcset())
+				.isEqualTo("https://images.example.com/c.jpg 200w, https://images.example.com/a.jpg 400w");
+	}
+	
+	@Test
+	void imagesWithoutDimensionsAreIgnored() {
+		
+		ImageSet covers = images(0, 0, 400, 600, 500, 0);
+		
+		ImageVariants variants = ImageVariants.of(covers, ImageSet.EMPTY);
+		
+		assertThat(variants.getCover()).isEqualTo(url(400, 600));
+		assertThat(variants.getCoverSrcset()).isEqualTo(url(400, 600) + " 400w");
+	}
+	
+	@Test
+	void onlyBackdropsOrOnlyCovers() {
+		
+		ImageVariants backdrops = ImageVariants.of(ImageSet.EMPTY, images(1920, 1080));
+		ImageVariants covers = ImageVariants.of(images(400, 600), ImageSet.EMPTY);
+		
+		assertThat(backdrops.getCover()).isNull();
+		assertThat(backdrops.getTile()).isEqualTo(url(1920, 1080));
+		assertThat(covers.getCover()).isEqualTo(url(400, 600));
+		assertThat(covers.getTile()).isNull();
+		assertThat(covers.getHero()).isNull();
+	}
+	
+	/**
+	 * Builds images from pairs of widths and heights.
+	 */
+	private static ImageSet images(int... dimensions) {
+		
+		ImageSet.Builder builder = ImageSet.builder();
+		
+		for (int i = 0; i < dimensions.length; i += 2)
+			builder.add(url(dimensions[i], dimensions[i + 1]), dimensions[i], dimensions[i + 1]);
+		
+		return builder.build();
+	}
+	
+	private static String url(int width, int height) {
+		
+		return "https://images.example.com/" + width + "x" + height + ".jpg";
+	}
+}
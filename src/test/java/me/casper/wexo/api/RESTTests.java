@@ -0,0 +1,298 @@
+package me.casper.wexo.api;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Refreshes against a local feed split over two ranges, with ETags so unchanged ranges are answered with a 304.
+ */
+class RESTTests {
+	
+	@TempDir
+	Path directory;
+	
+	private TestFeed feed;
+	
+	private FetchEngine fetchEngine;
+	private String baseUrl;
+	
+	@BeforeEach
+	void start() throws IOException {
+		
+		feed = new TestFeed(entries(1_200));
+		
+		fetchEngine = new FetchEngine(2);
+		baseUrl = feed.getUrl();
+	}
+	
+	@AfterEach
+	void stop() {
+		
+		fetchEngine.shutdown();
+		feed.close();
+	}
+	
+	@Test
+	void coldFetchInsertsEverything() {
+		
+		REST rest = rest();
+		
+		assertThat(rest.fetchAll()).isEqualTo(new REST.Delta(1_200, 0, 0, true));
+		assertThat(rest.getCatalogue().size()).isEqualTo(1_200);
+		assertThat(rest.isPartial()).isFalse();
+	}
+	
+	@Test
+	void unchangedFeedIsAnsweredWithNotModified() {
+		
+		REST rest = rest();
+		
+		rest.fetchAll();
+		rest.publish();
+		
+		Entry first = rest.getCatalogue().getEntries().get(0);
+		
+		assertThat(rest.fetchAll().isEmpty()).isTrue();
+		assertThat(feed.getNotModified()).isEqualTo(2);
+		
+		rest.publish();
+		
+		// The entries of an unchanged range are the ones we already had, not a second copy.
+		assertThat(rest.getCatalogue().getEntries().get(0)).isSameAs(first);
+	}
+	
+	@Test
+	void changedEntriesAreUpdatedInPlace() {
+		
+		REST rest = rest();
+		
+		rest.fetchAll();
+		rest.publish();
+		
+		Entry unchanged = rest.getCatalogue().getEntries().get(0);
+		
+		ArrayList<Entry> next = new ArrayList<>(feed.getEntries());
+		
+		next.set(1_100, TestEntries.entry("id1100", "Ny titel", 2001, "Drama"));
+		
+		feed.setEntries(next);
+		
+		assertThat(rest.fetchAll()).isEqualTo(new REST.Delta(0, 1, 0, true));
+		
+		rest.publish();
+		
+		// Only the second range changed, the first was a 304.
+		assertThat(feed.getNotModified()).isEqualTo(1);
+		assertThat(rest.getCatalogue().getEntries().get(0)).isSameAs(unchanged);
+		assertThat(rest.getCatalogue().getEntries().get(1_100).getTitle()).isEqualTo("Ny titel");
+	}
+	
+	@Test
+	void removedEntriesAreDeletedAndNewOnesAppended() {
+		
+		REST rest = rest();
+		
+		rest.fetchAll();
+		rest.publish();
+		
+		ArrayList<Entry> next = new ArrayList<>(feed.getEntries());
+		
+		next.remove(5);
+		next.add(TestEntries.entry("new", "Ny", 2020, "Gyser"));
+		
+		feed.setEntries(next);
+		
+		assertThat(rest.fetchAll()).isEqualTo(new REST.Delta(1, 0, 1, true));
+		
+		rest.publish();
+		
+		assertThat(rest.getCatalogue().contains("id5")).isFalse();
+		assertThat(rest.getCatalogue().getEntries().get(rest.getCatalogue().size() - 1).getId()).isEqualTo("new");
+	}
+	
+	@Test
+	void notModifiedRangeIsFetchedAgainWhenItsEntriesAreUnknown() {
+		
+		rest().fetchAll();
+		
+		final int before = feed.getFetched();
+		
+		// A new cache shares the fetch engine, so its validators are sent, but it doesn't have the entries they refer to.
+		REST rest = rest();
+		
+		assertThat(rest.fetchAll()).isEqualTo(new REST.Delta(1_200, 0, 0, true));
+		assertThat(feed.getNotModified()).isEqualTo(2);
+		assertThat(feed.getFetched() - before).isEqualTo(2);
+	}
+	
+	@Test
+	void writtenCacheIsLoadedAgain() throws IOException {
+		
+		Path path = directory.resolve("cache.json");
+		REST rest = new REST(path.toString(), fetchEngine, baseUrl, 2_000);
+		
+		rest.fetchAll();
+		rest.write();
+		
+		REST loaded = new REST(path.toString(), fetchEngine, baseUrl, 2_000);
+		
+		loaded.load();
+		
+		assertThat(loaded.getCatalogue().getEntries()).isEqualTo(feed.getEntries());
+		assertThat(loaded.getLastUpdated()).isEqualTo(rest.getLastUpdated());
+		
+		// Without the snapshot, the JSON cache is parsed instead.
+		Files.delete(Path.of(path + ".bin"));
+		
+		REST parsed = new REST(path.toString(), fetchEngine, baseUrl, 2_000);
+		
+		parsed.load();
+		
+		assertThat(parsed.getCatalogue().getEntries()).isEqualTo(feed.getEntries());
+	}
+	
+	@Test
+	void writeKeepsThePermissionsOfTheCache() throws IOException {
+		
+		Path path = directory.resolve("cache.json");
+		Path snapshot = Path.of(path + ".bin");
+		
+		assumeTrue(Files.getFileStore(directory).supportsFileAttributeView(PosixFileAttributeView.class));
+		
+		Set<PosixFilePermission> permissions = PosixFilePermissions.fromString("rw-rw-r--");
+		
+		Files.createFile(path, PosixFilePermissions.asFileAttribute(permissions));
+		Files.createFile(snapshot, PosixFilePermissions.asFileAttribute(permissions));
+		Files.setPosixFilePermissions(path, permissions);
+		Files.setPosixFilePermissions(snapshot, permissions);
+		
+		REST rest = new REST(path.toString(), fetchEngine, baseUrl, 2_000);
+		
+		rest.fetchAll();
+		rest.write();
+		
+		assertThat(Files.size(snapshot)).isPositive();
+		assertThat(Files.getPosixFilePermissions(path)).isEqualTo(permissions);
+		assertThat(Files.getPosixFilePermissions(snapshot)).isEqualTo(permissions);
+		
+		// Nothing is left behind next to the cache.
+		try (Stream<Path> files = Files.list(directory)) {
+			
+			assertThat(files).containsExactlyInAnyOrder(path, snapshot);
+		}
+	}
+	
+	@Test
+	void multibyteTextIsParsedIntact() {
+		
+		// Long runs of two, three and four byte characters end up split between reads of the body.
+		String text = "Blåbærgrød på Ærø, Øresund og Åbenrå – “citat” 🎬 ".repeat(400);
+		
+		for (boolean gzip : new boolean[] { false, true }) {
+			
+			ArrayList<Entry> entries = new ArrayList<>();
+			
+			for (int i = 0; i < 1_200; i++)
+				entries.add(TestEntries.entry("id" + i, "Ærø " + i + " – Søren & Åse", i % 100 == 0 ? text : "Fløde " + i, "movie", 2000,
+						List.of("Drama", "Kærlighed"), List.of("Søren Kierkegård", "Åse Ødegård"), List.of("Jørgen Æbelø")));
+			
+			feed.setEntries(entries);
+			feed.setGzip(gzip);
+			
+			REST rest = rest();
+			
+			assertThat(rest.fetchAll()).isEqualTo(new REST.Delta(1_200, 0, 0, true));
+			assertThat(rest.getCatalogue().getEntries()).isEqualTo(entries);
+			assertThat(rest.getCatalogue().getEntry("id100").getDescription()).isEqualTo(text);
+		}
+	}
+	
+	@Test
+	void truncatedRangeIsNotPublished() {
+		
+		byte[] body = TestEntries.feed(feed.getEntries().subList(1_000, 1_200)).getBytes(StandardCharsets.UTF_8);
+		
+		// Cut inside the header, between two entries, inside an entry and just before the end.
+		for (int length : new int[] { 10, body.length / 3, body.length / 2 + 7, body.length - 2 }) {
+			
+			feed.rewrite(1_000, full -> Arrays.copyOf(full, length));
+			
+			REST rest = rest();
+			
+			REST.Delta delta = rest.fetchAll();
+			
+			// The first range is published as it came in, none of the second.
+			assertThat(delta.complete()).isFalse();
+			assertThat(rest.isPartial()).isTrue();
+			assertThat(rest.getCatalogue().getEntries()).isEqualTo(feed.getEntries().subList(0, 1_000));
+		}
+	}
+	
+	@Test
+	void malformedRangeKeepsTheEntriesWeHave() {
+		
+		REST rest = rest();
+		
+		rest.fetchAll();
+		rest.publish();
+		
+		List<Entry> before = rest.getCatalogue().getEntries();
+		
+		ArrayList<Entry> next = new ArrayList<>(feed.getEntries());
+		
+		next.set(1_100, TestEntries.entry("id1100", "Ny titel", 2001, "Drama"));
+		next.remove(1_150);
+		
+		feed.setEntries(next);
+		
+		// Break the structure halfway through the changed range.
+		feed.rewrite(1_000, full -> {
+			
+			String json = new String(full, StandardCharsets.UTF_8);
+			int middle = json.indexOf("{\"guid\":\"id1120\"");
+			
+			return (json.substring(0, middle) + "]]" + json.substring(middle)).getBytes(StandardCharsets.UTF_8);
+		});
+		
+		assertThat(rest.fetchAll()).isEqualTo(new REST.Delta(0, 0, 0, false));
+		
+		rest.publish();
+		
+		// Nothing is deleted or updated from a range that couldn't be read.
+		assertThat(rest.getCatalogue().getEntries()).isEqualTo(before);
+		assertThat(rest.getCatalogue().getEntry("id1100").getTitle()).isEqualTo("Titel 1100");
+	}
+	
+	private REST rest() {
+		
+		return new REST(directory.resolve("cache" + System.nanoTime() + ".json").toString(), fetchEngine, baseUrl, 2_000);
+	}
+	
+	private static List<Entry> entries(int size) {
+		
+		ArrayList<Entry> entries = new ArrayList<>(size);
+		
+		for (int i = 0; i < size; i++)
+			entries.add(TestEntries.entry("id" + i, "Titel " + i, 1950 + i % 70, i % 2 == 0 ? "Drama" : "Action"));
+		
+		return entries;
+	}
+}
@@ -0,0 +1,97 @@
+package me.casper.wexo.api;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import static me.casper.wexo.api.TestEntries.entry;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SearchIndexTests {
+	
+	private final SearchIndex index = new SearchIndex(List.of(
+			entry("0", "Den store flugt", "Krigsfanger planlægger en flugt", "movie", 1963, List.of("Action"), List.of("Steve McQueen"), List.of("John Sturges")),
+			entry("1", "Saab 900", "En bil fra Sverige", "movie", 1990, List.of("Dokumentar"), List.of("Bo Café"), List.of("Ukendt")),
+			entry("2", "Aalborg by night", "Natteliv i Ålborg", "series", 2010, List.of("Dokumentar"), List.of("Anna Andersen"), List.of("Ukendt")),
+			entry("3", "Sahara", "Eventyr i ørkenen", "movie", 2005, List.of("Eventyr"), List.of("Matthew McConaughey"), List.of("Breck Eisner"))
+	));
+	
+	@Test
+	void matchesTheStartOfWords() {
+		
+		assertThat(search("flu")).containsExactly(0);
+		assertThat(search("lugt")).isEmpty();
+		assertThat(search("900")).containsExactly(1);
+	}
+	
+	@Test
+	void everyWordHasToMatch() {
+		
+		assertThat(search("den flugt")).containsExactly(0);
+		assertThat(search("den bil")).isEmpty();
+	}
+	
+	@Test
+	void searchesDescriptionsActorsAndDirectors() {
+		
+		assertThat(search("krigsfanger")).containsExactly(0);
+		assertThat(search("mcqueen")).containsExactly(0);
+		assertThat(search("eisner")).containsExactly(3);
+	}
+	
+	@Test
+	void ignoresCaseAndAccentsButNotDanishLetters() {
+		
+		assertThat(search("CAFE")).containsExactly(1);
+		assertThat(search("orken")).isEmpty();
+		assertThat(search("ørken")).containsExactly(3);
+	}
+	
+	@Test
+	void treatsAaAsÅ() {
+		
+		assertThat(search("ålborg")).containsExactly(2);
+		assertThat(search("aalborg")).containsExactly(2);
+		assertThat(search("saab")).containsExactly(1);
+	}
+	
+	@Test
+	void prefixEndingInASingleAMayBeTheStartOfAnÅ() {
+		
+		// "Saab" is indexed as "såb", but that's not what someone typing it sees.
+		assertThat(search("sa")).containsExactly(1, 3);
+		assertThat(search("saa")).containsExactly(1);
+		assertThat(search("a")).containsExactly(2);
+		assertThat(search("aa")).containsExactly(2);
+	}
+	
+	@Test
+	void emptyQueryMatchesNothing() {
+		
+		assertThat(search("")).isEmpty();
+		assertThat(search(" - ")).isEmpty();
+	}
+	
+	@Test
+	void commonTermsAreMatchedThroughBitsets() {
+		
+		ArrayList<Entry> entries = new ArrayList<>();
+		
+		for (int i = 0; i < 1_000; i++)
+			entries.add(entry("id" + i, (i % 2 == 0 ? "Almindelig " : "Sjælden ") + i, 2000, "Drama"));
+		
+		SearchIndex large = new SearchIndex(entries);
+		
+		assertThat(large.search("almindelig").cardinality()).isEqualTo(500);
+		assertThat(large.search("almindelig 10").stream().toArray()).containsExactly(10, 100, 102, 104, 106, 108);
+	}
+	
+	private List<Integer> search(String query) {
+		
+		BitSet matches = index.search(query);
+		
+		return matches.stream().boxed().toList();
+	}
+}
@@ -0,0 +1,110 @@
+package me.casper.wexo.api;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * Builds entries and feed pages for the tests.
+ */
+public final class TestEntries {
+	
+	private TestEntries() {
+	}
+	
+	public static Entry entry(String id, String title, int releaseYear, String... genres) {
+		
+		return entry(id, title, "Beskrivelse af " + title, "movie", releaseYear, List.of(genres), List.of("Skuespiller " + id), List.of("Instruktør " + id));
+	}
+	
+	public static Entry entry(String id, String title, String description, String programType, int releaseYear, List<String> genres, List<String> actors, List<String> directors) {
+		
+		ImageSet covers = ImageSet.builder()
+				.add("https://images.example.com/" + id + "/po-400x600.jpg", 400, 600)
+				.build();
+		
+		ImageSet backdrops = ImageSet.builder()
+				.add("https://images.example.com/" + id + "/bd-1920x1080.jpg", 1920, 1080)
+				.build();
+		
+		return new Entry(id, title, description, programType, releaseYear, covers, backdrops, genres, actors, directors, List.of("https://trailers.example.com/" + id + ".mp4"));
+	}
+	
+	/**
+	 * Writes entries the way the feed sends a range of them.
+	 */
+	public static String feed(List<Entry> entries) {
+		
+		StringWriter output = new StringWriter();
+		
+		try (JsonWriter writer = new JsonWriter(output)) {
+			
+			writer.beginObject();
+			writer.name("entryCount").value(entries.size());
+			writer.name("entries").beginArray();
+			
+			for (Entry entry : entries) {
+				
+				writer.beginObject();
+				writer.name("guid").value(entry.getId());
+				writer.name("title").value(entry.getTitle());
+				writer.name("description").value(entry.getDescription());
+				writer.name("plprogram$programType").value(entry.getProgramType());
+				writer.name("plprogram$year").value(entry.getReleaseYear());
+				
+				writer.name("plprogram$thumbnails").beginObject();
+				
+				for (ImageSet images : List.of(entry.getCovers(), entry.getBackdrops())) {
+					
+					for (int i = 0; i < images.size(); i++) {
+						
+						writer.name(images.getUrl(i)).beginObject();
+						writer.name("plprogram$url").value(images.getUrl(i));
+						writer.name("plprogram$width").value(images.getWidth(i));
+						writer.name("plprogram$height").value(images.getHeight(i));
+						writer.endObject();
+					}
+				}
+				
+				writer.endObject();
+				
+				writer.name("plprogram$tags").beginArray();
+				
+				for (String genre : entry.getGenres())
+					writer.beginObject().name("plprogram$scheme").value("genre").name("plprogram$title").value(genre).endObject();
+				
+				writer.endArray();
+				
+				writer.name("plprogram$credits").beginArray();
+				
+				for (String actor : entry.getActors())
+					writer.beginObject().name("plprogram$creditType").value("actor").name("plprogram$personName").value(actor).endObject();
+				
+				for (String director : entry.getDirectors())
+					writer.beginObject().name("plprogram$creditType").value("director").name("plprogram$personName").value(director).endObject();
+				
+				writer.endArray();
+				
+				writer.name("plprogramavailability$media").beginArray();
+				
+				for (String trailer : entry.getTrailers())
+					writer.beginObject().name("plmedia$publicUrl").value(trailer).endObject();
+				
+				writer.endArray();
+				writer.endObject();
+			}
+			
+			writer.endArray();
+			writer.endObject();
+			
+		} catch (IOException e) {
+			
+			throw new UncheckedIOException(e);
+		}
+		
+		return output.toString();
+	}
+}
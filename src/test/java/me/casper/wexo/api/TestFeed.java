@@ -0,0 +1,191 @@
+package me.casper.wexo.api;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A local stand-in for the feed, which answers ranges of a list of entries with ETags, so unchanged ranges get a 304.
+ */
+public final class TestFeed implements AutoCloseable {
+	
+	private static final Pattern RANGE = Pattern.compile("range=(\\d+)-(\\d+)");
+	
+	private final HttpServer server;
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+	
+	private volatile List<Entry> entries;
+	
+	private volatile int heldFrom = Integer.MAX_VALUE; // Ranges starting at this index wait for the gate.
+	private volatile CountDownLatch gate = new CountDownLatch(0);
+	
+	private volatile int rewrittenFrom = Integer.MAX_VALUE; // Ranges starting at this index are sent through the rewrite.
+	private volatile UnaryOperator<byte[]> rewrite = UnaryOperator.identity();
+	
+	private volatile boolean gzip = false;
+	
+	private final AtomicInteger fetched = new AtomicInteger();
+	private final AtomicInteger notModified = new AtomicInteger();
+	
+	public TestFeed(List<Entry> entries) throws IOException {
+		
+		this.entries = entries;
+		
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/feed", this::handle);
+		
+		// A held range would otherwise block the ranges behind it, as the server handles one exchange at a time by default.
+		server.setExecutor(executor);
+		server.start();
+	}
+	
+	/**
+	 * @return The URL of the feed, which the range is appended to.
+	 */
+	public String getUrl() {
+		
+		return "http://localhost:" + server.getAddress().getPort() + "/feed?form=json";
+	}
+	
+	public List<Entry> getEntries() {
+		
+		return entries;
+	}
+	
+	public void setEntries(List<Entry> entries) {
+		
+		this.entries = entries;
+	}
+	
+	/**
+	 * Holds back the ranges starting at or after an index (zero based), until {@link #release()} is called.
+	 */
+	public void hold(int from) {
+		
+		gate = new CountDownLatch(1);
+		heldFrom = from;
+	}
+	
+	public void release() {
+		
+		gate.countDown();
+	}
+	
+	/**
+	 * Sends the bodies of the ranges starting at or after an index (zero based) through a rewrite, such as cutting them short.
+	 */
+	public void rewrite(int from, UnaryOperator<byte[]> rewrite) {
+		
+		this.rewrite = rewrite;
+		this.rewrittenFrom = from;
+	}
+	
+	/**
+	 * Compresses the bodies with GZIP, the way the real feed does.
+	 */
+	public void setGzip(boolean gzip) {
+		
+		this.gzip = gzip;
+	}
+	
+	public int getFetched() {
+		
+		return fetched.get();
+	}
+	
+	public int getNotModified() {
+		
+		return notModified.get();
+	}
+	
+	@Override
+	public void close() {
+		
+		release();
+		server.stop(0);
+		executor.shutdownNow();
+	}
+	
+	private void handle(HttpExchange exchange) throws IOException {
+		
+		try (exchange) {
+			
+			Matcher range = RANGE.matcher(exchange.getRequestURI().getQuery());
+			
+			if (!range.find()) {
+				
+				exchange.sendResponseHeaders(400, -1);
+				
+				return;
+			}
+			
+			List<Entry> entries = this.entries;
+			
+			final int from = Math.min(entries.size(), Integer.parseInt(range.group(1)) - 1);
+			final int to = Math.min(entries.size(), Integer.parseInt(range.group(2)));
+			
+			if (from >= heldFrom && !gate.await(30, TimeUnit.SECONDS))
+				throw new IOException("The range was held for too long!");
+			
+			byte[] body = TestEntries.feed(entries.subList(from, to)).getBytes(StandardCharsets.UTF_8);
+			
+			if (from >= rewrittenFrom) body = rewrite.apply(body);
+			
+			String etag = "\"" + Integer.toHexString(Arrays.hashCode(body)) + "\"";
+			
+			exchange.getResponseHeaders().set("ETag", etag);
+			
+			if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+				
+				notModified.incrementAndGet();
+				
+				exchange.sendResponseHeaders(304, -1);
+				
+				return;
+			}
+			
+			fetched.incrementAndGet();
+			
+			if (gzip) {
+				
+				ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+				
+				try (GZIPOutputStream output = new GZIPOutputStream(compressed)) {
+					
+					output.write(body);
+				}
+				
+				body = compressed.toByteArray();
+				
+				exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+			}
+			
+			exchange.sendResponseHeaders(200, body.length);
+			
+			try (OutputStream output = exchange.getResponseBody()) {
+				
+				output.write(body);
+			}
+			
+		} catch (InterruptedException e) {
+			
+			Thread.currentThread().interrupt();
+		}
+	}
+}
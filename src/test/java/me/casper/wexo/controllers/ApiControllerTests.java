@@ -0,0 +1,189 @@
+package me.casper.wexo.controllers;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import me.casper.wexo.TestCatalogues;
+import me.casper.wexo.api.Entry;
+import me.casper.wexo.api.ImageSet;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ApiControllerTests {
+	
+	@TempDir
+	Path directory;
+	
+	@Autowired
+	private MockMvc mvc;
+	
+	@AfterEach
+	void stop() {
+		
+		TestCatalogues.stopServing();
+	}
+	
+	@Test
+	void pagesThroughEveryEntryOnce() throws Exception {
+		
+		TestCatalogues.serve(directory, entries(0, 25));
+		
+		ArrayList<String> seen = new ArrayList<>();
+		String cursor = null;
+		int pages = 0;
+		
+		do {
+			
+			JsonObject page = page(cursor, 10, "all");
+			
+			ids(page).forEach(seen::add);
+			cursor = next(page);
+			pages++;
+			
+		} while (cursor != null);
+		
+		assertThat(pages).isEqualTo(3);
+		assertThat(seen).isEqualTo(ids(entries(0, 25)));
+	}
+	
+	@Test
+	void lastPageHasNoCursor() throws Exception {
+		
+		TestCatalogues.serve(directory, entries(0, 10));
+		
+		assertThat(next(page(null, 10, "all"))).isNull();
+		assertThat(next(page(null, 9, "all"))).isNotNull();
+	}
+	
+	@Test
+	void filtersByGenre() throws Exception {
+		
+		TestCatalogues.serve(directory, entries(0, 20));
+		
+		JsonObject first = page(null, 3, "Drama");
+		
+		assertThat(ids(first)).containsExactly("id0", "id2", "id4");
+		assertThat(ids(page(next(first), 3, "Drama"))).containsExactly("id6", "id8", "id10");
+	}
+	
+	@Test
+	void continuesAfterTheCursorWhenEntriesBeforeItAreDeleted() throws Exception {
+		
+		TestCatalogues.serve(directory, entries(0, 20));
+		
+		JsonObject first = page(null, 10, "all");
+		
+		ArrayList<Entry> next = new ArrayList<>(entries(0, 20));
+		
+		next.removeIf(entry -> List.of("id0", "id1", "id2").contains(entry.getId()));
+		
+		TestCatalogues.serve(directory, next);
+		
+		assertThat(ids(page(next(first), 5, "all"))).containsExactly("id10", "id11", "id12", "id13", "id14");
+	}
+	
+	@Test
+	void continuesAfterTheCursorWhenItsEntryIsDeleted() throws Exception {
+		
+		TestCatalogues.serve(directory, entries(0, 20));
+		
+		JsonObject first = page(null, 10, "all");
+		
+		// The last entry of the page is gone, and so are entries before it, which shifts everything after them.
+		ArrayList<Entry> next = new ArrayList<>(entries(0, 20));
+		
+		next.removeIf(entry -> List.of("id1", "id3", "id9").contains(entry.getId()));
+		
+		TestCatalogues.serve(directory, next);
+		
+		assertThat(ids(page(next(first), 5, "all"))).containsExactly("id10", "id11", "id12", "id13", "id14");
+	}
+	
+	@Test
+	void newEntriesShowUpAtTheEnd() throws Exception {
+		
+		TestCatalogues.serve(directory, entries(0, 10));
+		
+		JsonObject first = page(null, 5, "all");
+		
+		ArrayList<Entry> next = new ArrayList<>(entries(0, 10));
+		
+		next.addAll(entries(10, 12));
+		
+		TestCatalogues.serve(directory, next);
+		
+		assertThat(ids(page(next(first), 10, "all"))).containsExactly("id5", "id6", "id7", "id8", "id9", "id10", "id11");
+	}
+	
+	@Test
+	void rejectsInvalidRequests() throws Exception {
+		
+		TestCatalogues.serve(directory, entries(0, 10));
+		
+		mvc.perform(get("/api/entries").param("cursor", "not a cursor")).andExpect(status().isBadRequest());
+		mvc.perform(get("/api/entries").param("limit", "0")).andExpect(status().isBadRequest());
+		mvc.perform(get("/api/entries").param("limit", "1001")).andExpect(status().isBadRequest());
+	}
+	
+	private JsonObject page(String cursor, int limit, String genre) throws Exception {
+		
+		MockHttpServletRequestBuilder request = get("/api/entries").param("limit", String.valueOf(limit)).param("genre", genre);
+		
+		if (cursor != null) request.param("cursor", cursor);
+		
+		String body = mvc.perform(request).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+		
+		return JsonParser.parseString(body).getAsJsonObject();
+	}
+	
+	private static List<String> ids(JsonObject page) {
+		
+		ArrayList<String> ids = new ArrayList<>();
+		
+		for (JsonElement entry : page.getAsJsonArray("entries"))
+			ids.add(entry.getAsJsonObject().get("id").getAsString());
+		
+		return ids;
+	}
+	
+	private static List<String> ids(List<Entry> entries) {
+		
+		return entries.stream().map(Entry::getId).toList();
+	}
+	
+	private static String next(JsonObject page) {
+		
+		return page.get("next").isJsonNull() ? null : page.get("next").getAsString();
+	}
+	
+	private static List<Entry> entries(int from, int to) {
+		
+		ArrayList<Entry> entries = new ArrayList<>();
+		
+		for (int i = from; i < to; i++) {
+			
+			ImageSet covers = ImageSet.builder().add("https://images.example.com/" + i + "/po.jpg", 400, 600).build();
+			
+			entries.add(new Entry("id" + i, "Titel " + i, "Beskrivelse", "movie", 2000 + i, covers, ImageSet.builder().build(),
+					List.of(i % 2 == 0 ? "Drama" : "Action"), List.of("Skuespiller"), List.of("Instruktør"), List.of()));
+		}
+		
+		return entries;
+	}
+}
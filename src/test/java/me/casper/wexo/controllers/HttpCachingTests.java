@@ -0,0 +1,110 @@
+package me.casper.wexo.controllers;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HttpCachingTests {
+	
+	private static final long VERSION = 0x1234;
+	
+	@Test
+	void firstRequestGetsValidators() {
+		
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		
+		assertThat(HttpCaching.checkNotModified(request(new MockHttpServletRequest(), response), VERSION, 1_000, "a", 1)).isFalse();
+		
+		assertThat(response.getStatus()).isEqualTo(200);
+		assertThat(response.getHeader(HttpHeaders.ETAG)).matches("W/\"1234-[0-9a-f]+-[0-9a-f]{8}\"");
+		assertThat(response.getHeader(HttpHeaders.CACHE_CONTROL)).contains("max-age=60");
+	}
+	
+	@Test
+	void matchingETagIsNotModified() {
+		
+		String etag = etag(VERSION, "a", 1);
+		
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		
+		request.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+		
+		assertThat(HttpCaching.checkNotModified(request(request, response), VERSION, 1_000, "a", 1)).isTrue();
+		assertThat(response.getStatus()).isEqualTo(304);
+	}
+	
+	@Test
+	void newVersionOrParametersAreModified() {
+		
+		String etag = etag(VERSION, "a", 1);
+		
+		assertThat(etag(VERSION + 1, "a", 1)).isNotEqualTo(etag);
+		assertThat(etag(VERSION, "b", 1)).isNotEqualTo(etag);
+		assertThat(etag(VERSION, "a", 2)).isNotEqualTo(etag);
+		
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		
+		request.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+		
+		assertThat(HttpCaching.checkNotModified(request(request, response), VERSION + 1, 1_000, "a", 1)).isFalse();
+		assertThat(response.getStatus()).isEqualTo(200);
+	}
+	
+	@Test
+	void lastModifiedIsNeverBeforeTheApplicationStarted() {
+		
+		// The catalogue last changed long before this build was started, so a copy from back then may link to static files that are gone.
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		
+		request.addHeader(HttpHeaders.IF_MODIFIED_SINCE, 1_000L);
+		
+		assertThat(HttpCaching.checkNotModified(request(request, new MockHttpServletResponse()), VERSION, 1_000, "a")).isFalse();
+		
+		request = new MockHttpServletRequest();
+		request.addHeader(HttpHeaders.IF_MODIFIED_SINCE, System.currentTimeMillis() + 60_000);
+		
+		assertThat(HttpCaching.checkNotModified(request(request, new MockHttpServletResponse()), VERSION, 1_000, "a")).isTrue();
+	}
+	
+	@Test
+	void emptyCatalogueHasNoLastModified() {
+		
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		
+		HttpCaching.checkNotModified(request(new MockHttpServletRequest(), response), VERSION, 0, "a");
+		
+		assertThat(response.getHeader(HttpHeaders.LAST_MODIFIED)).isNull();
+	}
+	
+	@Test
+	void buildHashCoversTheCodeOfTheApplication() throws IOException {
+		
+		// A change to the code that renders the pages has to change their ETags as well.
+		assertThat(HttpCaching.buildFiles()).containsKeys("me/casper/wexo/controllers/HttpCaching.class", "me/casper/wexo/controllers/WebController.class", "templates/index.html")
+				.doesNotContainKey("me/casper/wexo/controllers/HttpCachingTests.class");
+	}
+	
+	private static String etag(long version, Object... parameters) {
+		
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		
+		HttpCaching.checkNotModified(request(new MockHttpServletRequest(), response), version, 1_000, parameters);
+		
+		return response.getHeader(HttpHeaders.ETAG);
+	}
+	
+	private static ServletWebRequest request(MockHttpServletRequest request, MockHttpServletResponse response) {
+		
+		request.setMethod("GET");
+		
+		return new ServletWebRequest(request, response);
+	}
+}
@@ -0,0 +1,43 @@
+package me.casper.wexo.controllers;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Without a cache path nothing loads a catalogue, so every page answers 503 instead of failing.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class NoCatalogueTests {
+	
+	@Autowired
+	private MockMvc mvc;
+	
+	@Test
+	void pagesAreUnavailable() throws Exception {
+		
+		mvc.perform(get("/")).andExpect(status().isServiceUnavailable());
+		mvc.perform(get("/search").param("q", "test")).andExpect(status().isServiceUnavailable());
+		mvc.perform(get("/entry/test")).andExpect(status().isServiceUnavailable());
+	}
+	
+	@Test
+	void apiIsUnavailable() throws Exception {
+		
+		mvc.perform(get("/api/entries")).andExpect(status().isServiceUnavailable());
+		mvc.perform(get("/api/autocomplete").param("q", "test")).andExpect(status().isServiceUnavailable());
+	}
+	
+	@Test
+	void snapshotIsNotOnTheWebPort() throws Exception {
+		
+		mvc.perform(get("/api/snapshot")).andExpect(status().isNotFound());
+		mvc.perform(get("/actuator/snapshot")).andExpect(status().isNotFound());
+	}
+}
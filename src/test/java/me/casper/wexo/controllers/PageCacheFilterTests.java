@@ -0,0 +1,192 @@
+package me.casper.wexo.controllers;
+
+import me.casper.wexo.TestCatalogues;
+import me.casper.wexo.api.Entry;
+import me.casper.wexo.api.TestEntries;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class PageCacheFilterTests {
+	
+	@TempDir
+	Path directory;
+	
+	@Autowired
+	private MockMvc mvc;
+	
+	@AfterEach
+	void stop() {
+		
+		TestCatalogues.stopServing();
+	}
+	
+	@Test
+	void secondRequestIsAHit() throws Exception {
+		
+		TestCatalogues.serve(directory, entries("Første"));
+		
+		MockHttpServletResponse miss = perform(get("/?genre=Drama"));
+		MockHttpServletResponse hit = perform(get("/?genre=Drama"));
+		
+		assertThat(miss.getHeader("X-Cache")).isEqualTo("MISS");
+		assertThat(hit.getHeader("X-Cache")).isEqualTo("HIT");
+		assertThat(hit.getStatus()).isEqualTo(200);
+		assertThat(hit.getContentType()).startsWith("text/html");
+		assertThat(hit.getContentAsString(StandardCharsets.UTF_8)).isEqualTo(miss.getContentAsString(StandardCharsets.UTF_8)).contains("Første 2");
+		assertThat(hit.getHeaders(HttpHeaders.VARY)).contains(HttpHeaders.ACCEPT_ENCODING);
+	}
+	
+	@Test
+	void otherQueriesAreOtherPages() throws Exception {
+		
+		TestCatalogues.serve(directory, entries("Anden"));
+		
+		perform(get("/?genre=Drama"));
+		
+		assertThat(perform(get("/?genre=Action")).getHeader("X-Cache")).isEqualTo("MISS");
+		assertThat(perform(get("/entry/id1")).getHeader("X-Cache")).isEqualTo("MISS");
+		assertThat(perform(get("/entry/id1")).getHeader("X-Cache")).isEqualTo("HIT");
+	}
+	
+	@Test
+	void widePagesBypassTheCache() throws Exception {
+		
+		TestCatalogues.serve(directory, entries("Bred"));
+		
+		MockHttpServletResponse first = perform(get("/?start=1&end=5000&genre=Drama"));
+		MockHttpServletResponse second = perform(get("/?start=1&end=5000&genre=Drama"));
+		
+		assertThat(first.getHeader("X-Cache")).isEqualTo("BYPASS");
+		assertThat(second.getHeader("X-Cache")).isEqualTo("BYPASS");
+		assertThat(second.getContentAsString(StandardCharsets.UTF_8)).contains("Bred 2");
+	}
+	
+	@Test
+	void errorsAreNotCached() throws Exception {
+		
+		TestCatalogues.serve(directory, entries("Fejl"));
+		
+		MockHttpServletResponse invalid = perform(get("/").param("start", "abc"));
+		
+		assertThat(invalid.getStatus()).isEqualTo(400);
+		assertThat(invalid.getHeader("X-Cache")).isEqualTo("MISS");
+		assertThat(perform(get("/").param("start", "abc")).getHeader("X-Cache")).isEqualTo("MISS");
+		
+		// An entry page keeps its ETag across catalogues, so it can be revalidated before it is cached for the new one.
+		String etag = perform(get("/entry/id3")).getHeader(HttpHeaders.ETAG);
+		
+		ArrayList<Entry> next = new ArrayList<>(entries("Fejl"));
+		
+		next.remove(0);
+		
+		TestCatalogues.serve(directory, next);
+		
+		MockHttpServletResponse revalidated = perform(get("/entry/id3").header(HttpHeaders.IF_NONE_MATCH, etag));
+		
+		assertThat(revalidated.getStatus()).isEqualTo(304);
+		assertThat(revalidated.getHeader("X-Cache")).isEqualTo("MISS");
+		assertThat(perform(get("/entry/id3")).getHeader("X-Cache")).isEqualTo("MISS");
+	}
+	
+	@Test
+	void gzipIsOnlySentToClientsThatAcceptIt() throws Exception {
+		
+		TestCatalogues.serve(directory, entries("Komprimeret"));
+		
+		String html = perform(get("/")).getContentAsString(StandardCharsets.UTF_8);
+		
+		MockHttpServletResponse compressed = perform(get("/").header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate, br"));
+		
+		assertThat(compressed.getHeader("X-Cache")).isEqualTo("HIT");
+		assertThat(compressed.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+		assertThat(compressed.getContentLength()).isEqualTo(compressed.getContentAsByteArray().length);
+		assertThat(decompress(compressed.getContentAsByteArray())).isEqualTo(html);
+		
+		MockHttpServletResponse plain = perform(get("/").header(HttpHeaders.ACCEPT_ENCODING, "identity"));
+		
+		assertThat(plain.getHeader("X-Cache")).isEqualTo("HIT");
+		assertThat(plain.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+		assertThat(plain.getContentAsString(StandardCharsets.UTF_8)).isEqualTo(html);
+	}
+	
+	@Test
+	void hitsAreRevalidated() throws Exception {
+		
+		TestCatalogues.serve(directory, entries("Revalideret"));
+		
+		String etag = perform(get("/")).getHeader(HttpHeaders.ETAG);
+		
+		MockHttpServletResponse revalidated = perform(get("/").header(HttpHeaders.IF_NONE_MATCH, etag));
+		
+		assertThat(revalidated.getHeader("X-Cache")).isEqualTo("HIT");
+		assertThat(revalidated.getStatus()).isEqualTo(304);
+		assertThat(revalidated.getContentAsByteArray()).isEmpty();
+	}
+	
+	@Test
+	void pagesOfAnOldCatalogueAreNeverServed() throws Exception {
+		
+		TestCatalogues.serve(directory, entries("Gammel"));
+		
+		perform(get("/?genre=Drama"));
+		perform(get("/entry/id1"));
+		
+		TestCatalogues.serve(directory, entries("Ny"));
+		
+		MockHttpServletResponse index = perform(get("/?genre=Drama"));
+		MockHttpServletResponse entry = perform(get("/entry/id1"));
+		
+		assertThat(index.getHeader("X-Cache")).isEqualTo("MISS");
+		assertThat(index.getContentAsString(StandardCharsets.UTF_8)).contains("Ny 2").doesNotContain("Gammel");
+		assertThat(entry.getHeader("X-Cache")).isEqualTo("MISS");
+		assertThat(entry.getContentAsString(StandardCharsets.UTF_8)).contains("Ny 1").doesNotContain("Gammel");
+		
+		// Requests still holding the old catalogue can't clear out the pages of the new one.
+		assertThat(perform(get("/?genre=Drama")).getHeader("X-Cache")).isEqualTo("HIT");
+	}
+	
+	private MockHttpServletResponse perform(MockHttpServletRequestBuilder request) throws Exception {
+		
+		return mvc.perform(request).andReturn().getResponse();
+	}
+	
+	private static String decompress(byte[] body) throws IOException {
+		
+		try (InputStream input = new GZIPInputStream(new ByteArrayInputStream(body))) {
+			
+			return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+		}
+	}
+	
+	private static List<Entry> entries(String title) {
+		
+		ArrayList<Entry> entries = new ArrayList<>();
+		
+		for (int i = 0; i < 20; i++)
+			entries.add(TestEntries.entry("id" + i, title + " " + i, 2000 + i, i % 2 == 0 ? "Drama" : "Action"));
+		
+		return entries;
+	}
+}
@@ -0,0 +1,61 @@
+package me.casper.wexo.controllers;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.servlet.resource.ResourceUrlProvider;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class StaticResourcesTests {
+	
+	@Autowired
+	private MockMvc mvc;
+	
+	@Autowired
+	private ResourceUrlProvider urls;
+	
+	@Test
+	void versionedUrlsAreCachedForAYear() throws Exception {
+		
+		String url = urls.getForLookupPath("/css/index.css");
+		
+		assertThat(url).matches("/css/index-[0-9a-f]{32}\\.css");
+		
+		mvc.perform(get(url))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=31536000, public"));
+		
+		mvc.perform(get(url).header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+				.andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=31536000, public"));
+	}
+	
+	@Test
+	void unversionedUrlsAreOnlyCachedForAnHour() throws Exception {
+		
+		// The favicon is asked for by browsers at a fixed URL, so it may change with the next deploy.
+		mvc.perform(get("/favicon.ico"))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=3600, public"));
+		
+		mvc.perform(get("/css/index.css"))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=3600, public"));
+	}
+	
+	@Test
+	void wrongVersionIsNotFound() throws Exception {
+		
+		mvc.perform(get("/css/index-00000000000000000000000000000000.css")).andExpect(status().isNotFound());
+	}
+}